@@ -0,0 +1,72 @@
+package com.github.lgdd.liferay.health;
+
+import com.github.lgdd.liferay.health.api.HealthCheckResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+
+/**
+ * Benchmark the hot paths of the readiness and liveness probes. The "cold" variants invalidate the
+ * dependency graph snapshot first, as a framework event would, to measure the graph walk itself.
+ * <p>
+ * Run with {@code ./gradlew jmh}, which reports throughput, average time and allocation rate.
+ */
+public class ProbeBenchmark {
+
+  @Benchmark
+  public HealthCheckResponse bundlesVerify(ProbeBenchmarkState state) {
+
+    return state.bundlesHealthCheck.verify();
+  }
+
+  @Benchmark
+  public HealthCheckResponse bundlesVerifyCold(ProbeBenchmarkState state) {
+
+    state.dependencyGraphTracker.bundleChanged(null);
+    return state.bundlesHealthCheck.verify();
+  }
+
+  @Benchmark
+  public HealthCheckResponse bundlesVerifyBundles(ProbeBenchmarkState state) {
+
+    return state.bundlesHealthCheck.verifyBundles(
+        HealthCheckProbeType.READINESS, state.requiredBundleSymbolicNames);
+  }
+
+  @Benchmark
+  public HealthCheckResponse bundlesVerifyBundlesScoped(ProbeBenchmarkState state) {
+
+    return state.bundlesHealthCheck.verifyBundles(
+        HealthCheckProbeType.READINESS, state.requiredBundleSymbolicNames, true);
+  }
+
+  @Benchmark
+  public HealthCheckResponse componentsVerify(ProbeBenchmarkState state) {
+
+    return state.componentsHealthCheck.verify();
+  }
+
+  @Benchmark
+  public HealthCheckResponse componentsVerifyCold(ProbeBenchmarkState state) {
+
+    state.dependencyGraphTracker.bundleChanged(null);
+    return state.componentsHealthCheck.verify();
+  }
+
+  @Benchmark
+  public HealthCheckResponse probePlanFailFast(ProbeBenchmarkState state) {
+
+    return state.failFastProbePlan.evaluate();
+  }
+
+  @Benchmark
+  public HealthCheckResponse probePlanFullReport(ProbeBenchmarkState state) {
+
+    return state.fullReportProbePlan.evaluate();
+  }
+
+  @Benchmark
+  public String toJson(ProbeBenchmarkState state) {
+
+    return state.response.toJson();
+  }
+
+}
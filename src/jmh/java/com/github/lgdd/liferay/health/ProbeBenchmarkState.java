@@ -0,0 +1,118 @@
+package com.github.lgdd.liferay.health;
+
+import com.github.lgdd.liferay.health.api.HealthCheckResponse;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Health checks wired to a synthetic framework, as the service component runtime would wire them.
+ */
+@State(Scope.Benchmark)
+public class ProbeBenchmarkState {
+
+  @Param({"100", "1000", "5000"})
+  public int bundleCount;
+
+  @Param({"healthy", "broken"})
+  public String scenario;
+
+  public SyntheticFramework framework;
+
+  public BundleStateIndex bundleStateIndex;
+
+  public DependencyGraphTracker dependencyGraphTracker;
+
+  public ProbeMetrics probeMetrics;
+
+  public BundlesHealthCheck bundlesHealthCheck;
+
+  public ComponentsHealthCheck componentsHealthCheck;
+
+  public Set<String> requiredBundleSymbolicNames;
+
+  public ProbePlan failFastProbePlan;
+
+  public ProbePlan fullReportProbePlan;
+
+  public HealthCheckResponse response;
+
+  private IssueLogger issueLogger;
+
+  private ExecutorService stageExecutor;
+
+  @Setup(Level.Trial)
+  public void setUp() throws Exception {
+
+    framework = new SyntheticFramework(bundleCount, "broken".equals(scenario));
+
+    bundleStateIndex = new BundleStateIndex();
+    bundleStateIndex.activate(framework.getBundleContext());
+
+    dependencyGraphTracker = new DependencyGraphTracker();
+    dependencyGraphTracker.activate(framework.getBundleContext());
+
+    probeMetrics = new ProbeMetrics();
+    SyntheticFramework.inject(probeMetrics, "_bundleStateIndex", bundleStateIndex);
+    SyntheticFramework.inject(probeMetrics, "_dependencyGraphTracker", dependencyGraphTracker);
+
+    bundlesHealthCheck = new BundlesHealthCheck();
+    SyntheticFramework.inject(bundlesHealthCheck, "_bundleStateIndex", bundleStateIndex);
+    SyntheticFramework.inject(
+        bundlesHealthCheck, "_dependencyGraphTracker", dependencyGraphTracker);
+    SyntheticFramework.inject(bundlesHealthCheck, "_probeMetrics", probeMetrics);
+    bundlesHealthCheck.activate(framework.getBundleContext(), Collections.emptyMap());
+
+    componentsHealthCheck = new ComponentsHealthCheck();
+    SyntheticFramework.inject(
+        componentsHealthCheck, "_dependencyGraphTracker", dependencyGraphTracker);
+    componentsHealthCheck.activate(Collections.emptyMap());
+
+    requiredBundleSymbolicNames = new HashSet<>();
+    for (int i = 0; i < bundleCount; i += bundleCount / 10) {
+      requiredBundleSymbolicNames.add(framework.getBundles()[i].getSymbolicName());
+    }
+
+    issueLogger = new IssueLogger();
+    issueLogger.activate(Collections.emptyMap());
+
+    stageExecutor = Executors.newFixedThreadPool(2);
+
+    List<ProbeStage> stages = Arrays.asList(
+        new ProbeStage(
+            ProbeMetrics.CHECK_REQUIRED_BUNDLES,
+            () -> bundlesHealthCheck.verifyBundles(
+                HealthCheckProbeType.READINESS, requiredBundleSymbolicNames)),
+        new ProbeStage(ProbeMetrics.CHECK_BUNDLE_STATES, bundlesHealthCheck::verify),
+        new ProbeStage(ProbeMetrics.CHECK_COMPONENTS, componentsHealthCheck::verify));
+
+    failFastProbePlan = new ProbePlan(
+        HealthCheckProbeType.READINESS, stages, false, stageExecutor, probeMetrics, issueLogger);
+    fullReportProbePlan = new ProbePlan(
+        HealthCheckProbeType.READINESS, stages, true, stageExecutor, probeMetrics, issueLogger);
+
+    response = bundlesHealthCheck.verify();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+
+    issueLogger.deactivate();
+    stageExecutor.shutdownNow();
+    bundlesHealthCheck.deactivate();
+    dependencyGraphTracker.deactivate();
+    bundleStateIndex.deactivate();
+    framework.close();
+  }
+
+}
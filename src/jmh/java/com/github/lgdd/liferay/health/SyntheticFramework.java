@@ -0,0 +1,217 @@
+package com.github.lgdd.liferay.health;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Proxy;
+import java.util.Hashtable;
+import org.apache.felix.dm.Component;
+import org.apache.felix.dm.DependencyManager;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.FrameworkUtil;
+import org.osgi.framework.Version;
+import org.osgi.framework.wiring.BundleRevision;
+
+/**
+ * Stub OSGi framework made of synthetic bundles and Felix Dependency Manager components, used to
+ * benchmark the health checks without starting a real framework.
+ * <p>
+ * A healthy framework only has ACTIVE bundles (and RESOLVED fragments). A broken framework also
+ * has RESOLVED and INSTALLED bundles, and components depending on services which are never
+ * registered, and components depending on those.
+ */
+public class SyntheticFramework {
+
+  public SyntheticFramework(int bundleCount, boolean broken) {
+
+    _bundles = new Bundle[bundleCount];
+    _context = (BundleContext) Proxy.newProxyInstance(
+        getClass().getClassLoader(), new Class<?>[]{BundleContext.class},
+        (proxy, method, args) -> {
+          switch (method.getName()) {
+            case "getBundle":
+              if (_closed) {
+                throw new IllegalStateException("Framework stopped");
+              }
+              return args == null ? _bundles[0] : _getBundle(args[0]);
+            case "getBundles":
+              return _bundles.clone();
+            case "createFilter":
+              return FrameworkUtil.createFilter((String) args[0]);
+            case "hashCode":
+              return System.identityHashCode(proxy);
+            case "equals":
+              return proxy == args[0];
+            case "toString":
+              return "SyntheticBundleContext";
+            default:
+              return _defaultValue(method.getReturnType());
+          }
+        });
+
+    for (int i = 0; i < bundleCount; i++) {
+      _bundles[i] = _createBundle(i, _getState(i, broken), i % 15 == 3);
+    }
+
+    _dependencyManager = new DependencyManager(_context);
+
+    if (broken) {
+      for (int i = 0; i < bundleCount / 10; i++) {
+        Hashtable<String, Object> properties = new Hashtable<>();
+        properties.put("name", "dependent-" + i);
+
+        Component component = _dependencyManager
+            .createComponent()
+            .setInterface(DependentService.class.getName(), properties)
+            .setImplementation(new Object())
+            .add(_dependencyManager
+                     .createServiceDependency()
+                     .setService(MissingService.class, "(name=missing-" + (i % 5) + ")")
+                     .setRequired(true));
+        _dependencyManager.add(component);
+
+        // Cascade: a component depending on the one blocked by the missing service
+        Component dependentComponent = _dependencyManager
+            .createComponent()
+            .setImplementation(new Object())
+            .add(_dependencyManager
+                     .createServiceDependency()
+                     .setService(DependentService.class, "(name=dependent-" + i + ")")
+                     .setRequired(true));
+        _dependencyManager.add(dependentComponent);
+      }
+    }
+  }
+
+  public BundleContext getBundleContext() {
+
+    return _context;
+  }
+
+  public Bundle[] getBundles() {
+
+    return _bundles;
+  }
+
+  /**
+   * Stop the framework, which removes its components from the Dependency Manager graph.
+   */
+  public void close() {
+
+    _dependencyManager.clear();
+    _closed = true;
+  }
+
+  /**
+   * Set a field of a component as the service component runtime would for a reference.
+   */
+  public static void inject(Object target, String fieldName, Object value) throws Exception {
+
+    Field field = target.getClass().getDeclaredField(fieldName);
+    field.setAccessible(true);
+    field.set(target, value);
+  }
+
+  private static int _getState(int i, boolean broken) {
+
+    if (broken && i % 20 == 1) {
+      return Bundle.RESOLVED;
+    }
+    if (broken && i % 50 == 2) {
+      return Bundle.INSTALLED;
+    }
+    if (i % 15 == 3) {
+      return Bundle.RESOLVED;
+    }
+    return Bundle.ACTIVE;
+  }
+
+  private Bundle _createBundle(long bundleId, int state, boolean fragment) {
+
+    String symbolicName = "com.github.lgdd.liferay.health.synthetic.bundle" + bundleId;
+    Hashtable<String, String> headers = new Hashtable<>();
+    headers.put("Bundle-SymbolicName", symbolicName);
+    if (fragment) {
+      headers.put("Fragment-Host", "com.github.lgdd.liferay.health.synthetic.bundle0");
+    }
+
+    int types = fragment ? BundleRevision.TYPE_FRAGMENT : 0;
+    BundleRevision revision = (BundleRevision) Proxy.newProxyInstance(
+        getClass().getClassLoader(), new Class<?>[]{BundleRevision.class},
+        (proxy, method, args) -> "getTypes".equals(method.getName())
+                                 ? types : _defaultValue(method.getReturnType()));
+
+    return (Bundle) Proxy.newProxyInstance(
+        getClass().getClassLoader(), new Class<?>[]{Bundle.class},
+        (proxy, method, args) -> {
+          switch (method.getName()) {
+            case "getBundleId":
+              return bundleId;
+            case "getSymbolicName":
+              return symbolicName;
+            case "getState":
+              return state;
+            case "getHeaders":
+              return new Hashtable<>(headers);
+            case "getVersion":
+              return Version.emptyVersion;
+            case "adapt":
+              return args[0] == BundleRevision.class ? revision : null;
+            case "getBundleContext":
+              return _context;
+            case "hashCode":
+              return Long.hashCode(bundleId);
+            case "equals":
+              return proxy == args[0];
+            case "compareTo":
+              return Long.compare(bundleId, ((Bundle) args[0]).getBundleId());
+            case "toString":
+              return symbolicName + " [" + bundleId + "]";
+            default:
+              return _defaultValue(method.getReturnType());
+          }
+        });
+  }
+
+  private Bundle _getBundle(Object arg) {
+
+    if (arg instanceof Long) {
+      long bundleId = (Long) arg;
+      return bundleId < _bundles.length ? _bundles[(int) bundleId] : null;
+    }
+    return null;
+  }
+
+  private static Object _defaultValue(Class<?> type) {
+
+    if (type == boolean.class) {
+      return false;
+    }
+    if (type == int.class) {
+      return 0;
+    }
+    if (type == long.class) {
+      return 0L;
+    }
+    return null;
+  }
+
+  /**
+   * Service of the components blocked by a missing service, so components depending on it are
+   * blocked in cascade.
+   */
+  public interface DependentService {
+
+  }
+
+  /**
+   * Service which is never registered, so components depending on it stay unregistered.
+   */
+  public interface MissingService {
+
+  }
+
+  private final Bundle[] _bundles;
+  private final BundleContext _context;
+  private final DependencyManager _dependencyManager;
+  private volatile boolean _closed;
+}
@@ -0,0 +1,386 @@
+package com.github.lgdd.liferay.health;
+
+import com.github.lgdd.liferay.health.api.HealthCheckResponse;
+import com.github.lgdd.liferay.health.api.HealthCheckStatus;
+import com.liferay.portal.configuration.metatype.bnd.util.ConfigurableUtil;
+import com.liferay.portal.kernel.util.PropsKeys;
+import com.liferay.portal.kernel.util.PropsUtil;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.BundleEvent;
+import org.osgi.framework.BundleListener;
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Deactivate;
+import org.osgi.service.component.annotations.Modified;
+import org.osgi.service.component.annotations.Reference;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Verify the bundles in a desired state (ACTIVE, or RESOLVED for fragments) match a baseline
+ * learned on a known-good node: report the bundles of the baseline which are missing, the bundles
+ * which are not part of it, and the bundles deployed with another version.
+ * <p>
+ * The baseline is a text file under $LIFERAY_HOME, with one "symbolic name;version" line per
+ * bundle, loaded once into a map indexed by symbolic name. The comparison is only made again after
+ * a bundle event.
+ * <p>
+ * In learn mode, the baseline is recorded in the background once the framework has started and no
+ * bundle changed for a quiet period, so the bundles still being deployed are part of it. It is only
+ * recorded once per configuration change: bundle events don't record it again, so a node degrading
+ * while the learn mode is still enabled does not overwrite the baseline. Learning does not depend
+ * on the baseline being verified for readiness.
+ */
+@Component(
+    immediate = true,
+    configurationPid = HealthCheckConfiguration.PID,
+    service = BaselineHealthCheck.class
+)
+public class BaselineHealthCheck implements BundleListener {
+
+  /**
+   * Verify the bundles against the baseline, or tell whether the baseline was learned if the learn
+   * mode is enabled.
+   *
+   * @return a response entity to be sent in the HTTP response body as JSON
+   * @see HealthCheckConfiguration#verifyBaselineForReadiness
+   * @see HealthCheckConfiguration#learnBaseline
+   */
+  public HealthCheckResponse verify() {
+
+    if (_config.learnBaseline()) {
+      HealthCheckResponse learnResponse = _learnResponse;
+
+      return learnResponse != null ? learnResponse : _LEARN_PENDING_RESPONSE;
+    }
+
+    HealthCheckResponse response = _response;
+
+    if (response != null && !_dirty) {
+      return response;
+    }
+
+    synchronized (this) {
+      if (_response != null && !_dirty) {
+        return _response;
+      }
+
+      _dirty = false;
+      _response = _compare(_getVersions());
+
+      return _response;
+    }
+  }
+
+  @Override
+  public void bundleChanged(BundleEvent event) {
+
+    _lastBundleChange = System.nanoTime();
+    _dirty = true;
+  }
+
+  /**
+   * Learn the baseline if the learn mode is enabled, it has not been learned since the last
+   * configuration change, the framework has started and no bundle changed for the quiet period.
+   * Run by the learner.
+   */
+  private synchronized void _learnIfQuiet() {
+
+    HealthCheckConfiguration config = _config;
+    long quietPeriod = TimeUnit.MILLISECONDS.toNanos(config.baselineLearnQuietPeriod());
+
+    if (!config.learnBaseline() || _learnResponse != null || !_startupTracker.isStarted()
+        || System.nanoTime() - _lastBundleChange < quietPeriod) {
+      return;
+    }
+
+    _learnResponse = _learn(_getVersions());
+    _stopLearner();
+  }
+
+  /**
+   * @return the versions of the bundles in a desired state, indexed by symbolic name
+   */
+  private Map<String, Set<String>> _getVersions() {
+
+    Map<String, Set<String>> versions = new HashMap<>();
+
+    for (Bundle bundle : _context.getBundles()) {
+      int state = bundle.getState();
+      String symbolicName = bundle.getSymbolicName();
+
+      if (symbolicName != null
+          && (state == Bundle.ACTIVE
+                  || state == Bundle.RESOLVED && _bundleStateIndex.isFragment(bundle))) {
+        versions.computeIfAbsent(symbolicName, k -> new TreeSet<>())
+                .add(bundle.getVersion().toString());
+      }
+    }
+
+    return versions;
+  }
+
+  private HealthCheckResponse _learn(Map<String, Set<String>> versions) {
+
+    Path path = _getPath();
+    List<String> lines = new ArrayList<>(versions.size() + 1);
+
+    lines.add("# Bundle baseline learned on " + new Date());
+    for (Map.Entry<String, Set<String>> entry : new TreeMap<>(versions).entrySet()) {
+      for (String version : entry.getValue()) {
+        lines.add(entry.getKey() + _SEPARATOR + version);
+      }
+    }
+
+    try {
+      Files.createDirectories(path.toAbsolutePath().getParent());
+      Path tempPath = path.resolveSibling(path.getFileName() + ".tmp");
+      Files.write(tempPath, lines, StandardCharsets.UTF_8);
+      try {
+        Files.move(
+            tempPath, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+      } catch (AtomicMoveNotSupportedException e) {
+        Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING);
+      }
+    } catch (IOException e) {
+      _log.error("Unable to write the bundle baseline to " + path, e);
+      return HealthCheckResponse.builder()
+                                .status(HealthCheckStatus.DOWN)
+                                .message("Unable to write the bundle baseline")
+                                .issues(Collections.singletonList(
+                                    "Unable to write the bundle baseline to " + path + ": "
+                                        + e.getMessage()))
+                                .build();
+    }
+
+    _baseline = versions;
+
+    return HealthCheckResponse.builder()
+                              .status(HealthCheckStatus.UP)
+                              .message("Bundle baseline learned with " + (lines.size() - 1)
+                                           + " bundles")
+                              .build();
+  }
+
+  private HealthCheckResponse _compare(Map<String, Set<String>> versions) {
+
+    Map<String, Set<String>> baseline = _getBaseline();
+
+    if (baseline == null) {
+      return HealthCheckResponse.builder()
+                                .status(HealthCheckStatus.DOWN)
+                                .message("No bundle baseline found")
+                                .issues(Collections.singletonList(
+                                    "No bundle baseline found at " + _getPath()
+                                        + ", learn it first on a known-good node"))
+                                .build();
+    }
+
+    List<String> issues = new ArrayList<>();
+
+    for (Map.Entry<String, Set<String>> entry : baseline.entrySet()) {
+      Set<String> currentVersions = versions.get(entry.getKey());
+
+      if (currentVersions == null) {
+        issues.add("Missing bundle from the baseline: " + entry.getKey() + " "
+                       + String.join(", ", entry.getValue()));
+      } else if (!currentVersions.equals(entry.getValue())) {
+        issues.add("Bundle " + entry.getKey() + " " + String.join(", ", currentVersions)
+                       + " differs from the baseline version "
+                       + String.join(", ", entry.getValue()));
+      }
+    }
+
+    for (Map.Entry<String, Set<String>> entry : versions.entrySet()) {
+      if (!baseline.containsKey(entry.getKey())) {
+        issues.add("Bundle not in the baseline: " + entry.getKey() + " "
+                       + String.join(", ", entry.getValue()));
+      }
+    }
+
+    if (issues.isEmpty()) {
+      return HealthCheckResponse.builder()
+                                .status(HealthCheckStatus.UP)
+                                .message(OK_MESSAGE)
+                                .build();
+    }
+
+    Collections.sort(issues);
+
+    String message = issues.size() > 1
+                     ? "Found " + issues.size() + " differences with the bundle baseline"
+                     : "Found 1 difference with the bundle baseline";
+
+    return HealthCheckResponse.builder()
+                              .status(HealthCheckStatus.DOWN)
+                              .message(message)
+                              .issues(issues)
+                              .build();
+  }
+
+  /**
+   * @return the baseline, loaded from its file the first time, or null if there is none
+   */
+  private Map<String, Set<String>> _getBaseline() {
+
+    if (_baseline != null) {
+      return _baseline;
+    }
+
+    Path path = _getPath();
+
+    if (!Files.isRegularFile(path)) {
+      return null;
+    }
+
+    Map<String, Set<String>> baseline = new HashMap<>();
+
+    try {
+      for (String line : Files.readAllLines(path, StandardCharsets.UTF_8)) {
+        int index = line.indexOf(_SEPARATOR);
+        if (line.startsWith("#") || index <= 0) {
+          continue;
+        }
+        baseline.computeIfAbsent(line.substring(0, index).trim(), k -> new TreeSet<>())
+                .add(line.substring(index + 1).trim());
+      }
+    } catch (IOException e) {
+      _log.error("Unable to read the bundle baseline from " + path, e);
+      return null;
+    }
+
+    _baseline = baseline;
+
+    return baseline;
+  }
+
+  /**
+   * @return the path of the baseline file, relative to $LIFERAY_HOME unless absolute
+   */
+  private Path _getPath() {
+
+    String baselineFile = _config.baselineFile().trim();
+
+    if (baselineFile.isEmpty()) {
+      baselineFile = _DEFAULT_BASELINE_FILE;
+    }
+
+    Path path = Paths.get(baselineFile);
+
+    if (path.isAbsolute()) {
+      return path;
+    }
+
+    String liferayHome = PropsUtil.get(PropsKeys.LIFERAY_HOME);
+
+    return liferayHome != null ? Paths.get(liferayHome).resolve(path) : path;
+  }
+
+  @Activate
+  public synchronized void activate(BundleContext bundleContext, Map<String, Object> properties) {
+
+    _context = bundleContext;
+    _context.addBundleListener(this);
+    modified(properties);
+  }
+
+  /**
+   * Forget the baseline and, in learn mode, start waiting for the quiet period again: the baseline
+   * is never learned right away, since the bundles may still be changing.
+   */
+  @Modified
+  public synchronized void modified(Map<String, Object> properties) {
+
+    _config =
+        ConfigurableUtil.createConfigurable(HealthCheckConfiguration.class, properties);
+    _baseline = null;
+    _response = null;
+    _learnResponse = null;
+    _dirty = true;
+    _lastBundleChange = System.nanoTime();
+
+    _stopLearner();
+
+    if (_config.learnBaseline()) {
+      long interval = Math.max(1, _config.baselineLearnQuietPeriod() / 4);
+      _learner = Executors.newSingleThreadScheduledExecutor(
+          new HealthCheckThreadFactory("Health Check Baseline Learner"));
+      _learner.scheduleWithFixedDelay(
+          this::_learnIfQuiet, interval, interval, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  @Deactivate
+  public synchronized void deactivate() {
+
+    _stopLearner();
+    _context.removeBundleListener(this);
+  }
+
+  /**
+   * The learner runs while holding the lock of this component, so it isn't waited for.
+   */
+  private void _stopLearner() {
+
+    if (_learner != null) {
+      _learner.shutdownNow();
+      _learner = null;
+    }
+  }
+
+  public static final String OK_MESSAGE = "Bundles match the baseline";
+
+  private static final String _DEFAULT_BASELINE_FILE = "data/health-check/bundle-baseline.txt";
+
+  private static final HealthCheckResponse _LEARN_PENDING_RESPONSE =
+      HealthCheckResponse.builder()
+                         .status(HealthCheckStatus.DOWN)
+                         .message("Bundle baseline will be learned once the framework started "
+                                      + "and the bundles stopped changing")
+                         .build();
+
+  private static final String _SEPARATOR = ";";
+
+  private volatile HealthCheckConfiguration _config;
+
+  private volatile Map<String, Set<String>> _baseline;
+
+  private volatile HealthCheckResponse _response;
+
+  private volatile HealthCheckResponse _learnResponse;
+
+  private volatile boolean _dirty = true;
+
+  private volatile long _lastBundleChange = System.nanoTime();
+
+  private BundleContext _context;
+  private ScheduledExecutorService _learner;
+
+  @Reference
+  private BundleStateIndex _bundleStateIndex;
+
+  @Reference
+  private StartupTracker _startupTracker;
+
+  private static final Logger _log = LoggerFactory.getLogger(BaselineHealthCheck.class);
+}
@@ -0,0 +1,264 @@
+package com.github.lgdd.liferay.health;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Dictionary;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.BundleEvent;
+import org.osgi.framework.Constants;
+import org.osgi.framework.wiring.BundleRevision;
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Deactivate;
+import org.osgi.util.tracker.BundleTracker;
+import org.osgi.util.tracker.BundleTrackerCustomizer;
+
+/**
+ * Keep an index of the bundles in an undesired state, i.e. RESOLVED (except for fragments) or
+ * INSTALLED, and of every bundle by its symbolic name, several versions of a bundle being possibly
+ * installed at once. The index is updated by a bundle tracker each time a bundle changes state, so
+ * probes can read it without scanning every bundle of the framework.
+ * <p>
+ * Whether a bundle is a fragment is computed once per revision of the bundle and kept in bit sets
+ * indexed by bundle id, so classifying a bundle again allocates nothing.
+ */
+@Component(
+    immediate = true,
+    service = BundleStateIndex.class
+)
+public class BundleStateIndex
+    implements BundleTrackerCustomizer<Bundle> {
+
+  /**
+   * @return bundles in the RESOLVED state which are not fragments, ordered by bundle id
+   */
+  public Collection<Bundle> getResolvedBundles() {
+
+    return Collections.unmodifiableCollection(_resolvedBundles.values());
+  }
+
+  /**
+   * @return bundles in the INSTALLED state, ordered by bundle id
+   */
+  public Collection<Bundle> getInstalledBundles() {
+
+    return Collections.unmodifiableCollection(_installedBundles.values());
+  }
+
+  /**
+   * @param symbolicName symbolic name of the bundle
+   * @return the bundle installed with this symbolic name, the one in the most advanced state if
+   * several versions are installed, or null if there is none
+   */
+  public Bundle getBundle(String symbolicName) {
+
+    Set<Bundle> bundles = _bundlesBySymbolicName.get(symbolicName);
+
+    if (bundles == null) {
+      return null;
+    }
+
+    Bundle bestBundle = null;
+    for (Bundle bundle : bundles) {
+      if (bestBundle == null || bundle.getState() > bestBundle.getState()) {
+        bestBundle = bundle;
+      }
+    }
+    return bestBundle;
+  }
+
+  /**
+   * @param bundle bundle to classify
+   * @return true if the bundle is a fragment
+   */
+  public boolean isFragment(Bundle bundle) {
+
+    long bundleId = bundle.getBundleId();
+
+    if (bundleId >= _MAX_CLASSIFIED_BUNDLE_ID) {
+      return _isFragment(bundle);
+    }
+
+    int word = (int) (bundleId >>> 6);
+    long mask = 1L << (bundleId & 63);
+
+    AtomicLongArray classified = _classified;
+    AtomicLongArray fragments = _fragments;
+
+    if (word < classified.length() && (classified.get(word) & mask) != 0) {
+      return (fragments.get(word) & mask) != 0;
+    }
+
+    boolean fragment = _isFragment(bundle);
+    _classify(word, mask, fragment);
+
+    return fragment;
+  }
+
+  @Override
+  public Bundle addingBundle(Bundle bundle, BundleEvent event) {
+
+    _index(bundle);
+    return bundle;
+  }
+
+  @Override
+  public void modifiedBundle(Bundle bundle, BundleEvent event, Bundle object) {
+
+    if (event != null
+        && (event.getType() == BundleEvent.UPDATED || event.getType() == BundleEvent.UNRESOLVED)) {
+      _unclassify(bundle.getBundleId());
+    }
+
+    _index(bundle);
+  }
+
+  @Override
+  public void removedBundle(Bundle bundle, BundleEvent event, Bundle object) {
+
+    _unclassify(bundle.getBundleId());
+    _resolvedBundles.remove(bundle.getBundleId());
+    _installedBundles.remove(bundle.getBundleId());
+
+    String symbolicName = bundle.getSymbolicName();
+    if (symbolicName != null) {
+      _bundlesBySymbolicName.computeIfPresent(symbolicName, (name, bundles) -> {
+        bundles.remove(bundle);
+        return bundles.isEmpty() ? null : bundles;
+      });
+    }
+  }
+
+  private void _index(Bundle bundle) {
+
+    long bundleId = bundle.getBundleId();
+    int state = bundle.getState();
+
+    if (state == Bundle.RESOLVED && !isFragment(bundle)) {
+      _resolvedBundles.put(bundleId, bundle);
+    } else {
+      _resolvedBundles.remove(bundleId);
+    }
+
+    if (state == Bundle.INSTALLED) {
+      _installedBundles.put(bundleId, bundle);
+    } else {
+      _installedBundles.remove(bundleId);
+    }
+
+    String symbolicName = bundle.getSymbolicName();
+    if (symbolicName != null) {
+      _bundlesBySymbolicName.compute(symbolicName, (name, bundles) -> {
+        Set<Bundle> newBundles = bundles != null ? bundles : ConcurrentHashMap.newKeySet();
+        newBundles.add(bundle);
+        return newBundles;
+      });
+    }
+  }
+
+  /**
+   * Classify a bundle from its current revision, or from its raw headers if it has none (e.g.
+   * once uninstalled).
+   */
+  private boolean _isFragment(Bundle b) {
+
+    BundleRevision revision = b.adapt(BundleRevision.class);
+
+    if (revision != null) {
+      return (revision.getTypes() & BundleRevision.TYPE_FRAGMENT) != 0;
+    }
+
+    Dictionary<String, String> headers = b.getHeaders("");
+    return headers != null && headers.get(Constants.FRAGMENT_HOST) != null;
+  }
+
+  private synchronized void _classify(int word, long mask, boolean fragment) {
+
+    if (word >= _classified.length()) {
+      int length = Math.max(word + 1, _classified.length() * 2);
+      _fragments = _copyOf(_fragments, length);
+      _classified = _copyOf(_classified, length);
+    }
+
+    // The fragment bit is set before the classified bit, which readers check first
+    if (fragment) {
+      _fragments.getAndAccumulate(word, mask, (bits, bit) -> bits | bit);
+    } else {
+      _fragments.getAndAccumulate(word, ~mask, (bits, bit) -> bits & bit);
+    }
+    _classified.getAndAccumulate(word, mask, (bits, bit) -> bits | bit);
+  }
+
+  private synchronized void _unclassify(long bundleId) {
+
+    int word = (int) (bundleId >>> 6);
+
+    if (bundleId < _MAX_CLASSIFIED_BUNDLE_ID && word < _classified.length()) {
+      _classified.getAndAccumulate(word, ~(1L << (bundleId & 63)), (bits, bit) -> bits & bit);
+    }
+  }
+
+  private static AtomicLongArray _copyOf(AtomicLongArray array, int length) {
+
+    AtomicLongArray copy = new AtomicLongArray(length);
+    for (int i = 0; i < array.length(); i++) {
+      copy.set(i, array.get(i));
+    }
+    return copy;
+  }
+
+  @Activate
+  public void activate(BundleContext bundleContext) {
+
+    _bundleTracker = new BundleTracker<>(bundleContext, _TRACKED_STATES, this);
+    _bundleTracker.open();
+  }
+
+  @Deactivate
+  public void deactivate() {
+
+    _bundleTracker.close();
+    _resolvedBundles.clear();
+    _installedBundles.clear();
+    _bundlesBySymbolicName.clear();
+    _clearClassifications();
+  }
+
+  private synchronized void _clearClassifications() {
+
+    _classified = new AtomicLongArray(_INITIAL_CLASSIFIED_WORDS);
+    _fragments = new AtomicLongArray(_INITIAL_CLASSIFIED_WORDS);
+  }
+
+  private static final int _TRACKED_STATES =
+      Bundle.INSTALLED | Bundle.RESOLVED | Bundle.STARTING | Bundle.STOPPING | Bundle.ACTIVE;
+
+  /**
+   * Bundles with a larger id are classified on each call rather than growing the bit sets.
+   */
+  private static final long _MAX_CLASSIFIED_BUNDLE_ID = 1L << 24;
+
+  private static final int _INITIAL_CLASSIFIED_WORDS = 64;
+
+  private BundleTracker<Bundle> _bundleTracker;
+
+  /**
+   * One bit per bundle id, set once the bundle is classified and cleared when its revision changes.
+   */
+  private volatile AtomicLongArray _classified = new AtomicLongArray(_INITIAL_CLASSIFIED_WORDS);
+
+  /**
+   * One bit per bundle id, set if the bundle is a fragment.
+   */
+  private volatile AtomicLongArray _fragments = new AtomicLongArray(_INITIAL_CLASSIFIED_WORDS);
+
+  private final Map<Long, Bundle> _resolvedBundles = new ConcurrentSkipListMap<>();
+  private final Map<Long, Bundle> _installedBundles = new ConcurrentSkipListMap<>();
+  private final Map<String, Set<Bundle>> _bundlesBySymbolicName = new ConcurrentHashMap<>();
+}
@@ -1,31 +1,55 @@
 package com.github.lgdd.liferay.health;
 
+import com.github.lgdd.liferay.health.api.AsyncHealthCheckService;
 import com.github.lgdd.liferay.health.api.HealthCheckResponse;
 import com.github.lgdd.liferay.health.api.HealthCheckService;
 import com.github.lgdd.liferay.health.api.HealthCheckStatus;
+import com.liferay.portal.configuration.metatype.bnd.util.ConfigurableUtil;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Dictionary;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import org.apache.felix.dm.diagnostics.CircularDependency;
-import org.apache.felix.dm.diagnostics.DependencyGraph;
-import org.apache.felix.dm.diagnostics.DependencyGraph.ComponentState;
-import org.apache.felix.dm.diagnostics.DependencyGraph.DependencyState;
 import org.apache.felix.dm.diagnostics.MissingDependency;
 import org.osgi.framework.Bundle;
 import org.osgi.framework.BundleContext;
 import org.osgi.framework.ServiceReference;
+import org.osgi.framework.wiring.BundleWire;
+import org.osgi.framework.wiring.BundleWiring;
 import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
 import org.osgi.service.component.annotations.Deactivate;
+import org.osgi.service.component.annotations.Modified;
+import org.osgi.service.component.annotations.Reference;
 import org.osgi.util.tracker.ServiceTracker;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 @Component(
     immediate = true,
+    configurationPid = HealthCheckConfiguration.PID,
     service = BundlesHealthCheck.class
 )
 public class BundlesHealthCheck {
@@ -42,12 +66,14 @@ public class BundlesHealthCheck {
   public HealthCheckResponse verify() {
 
     String message = "No issues with bundles";
-    List<String> issues = _getIssues();
+    DependencyGraphSnapshot snapshot = _dependencyGraphTracker.getSnapshot();
+    List<String> issues = _getIssues(snapshot);
 
     if (issues.isEmpty()) {
       return HealthCheckResponse.builder()
                                 .status(HealthCheckStatus.UP)
                                 .message(message)
+                                .generation(snapshot.getGeneration())
                                 .build();
     }
 
@@ -58,6 +84,7 @@ public class BundlesHealthCheck {
                               .status(HealthCheckStatus.DOWN)
                               .message(message)
                               .issues(issues)
+                              .generation(snapshot.getGeneration())
                               .build();
   }
 
@@ -76,13 +103,34 @@ public class BundlesHealthCheck {
       HealthCheckProbeType probeType,
       Set<String> requiredBundleSymbolicNames) {
 
+    return verifyBundles(probeType, requiredBundleSymbolicNames, false);
+  }
+
+  /**
+   * Verify if the required bundles from the configuration are present and in a proper state, i.e.
+   * ACTIVE or RESOLVED if the bundle is a fragment. If scoped, only the required bundles and the
+   * bundles they are transitively wired to are verified, otherwise every bundle state is verified.
+   *
+   * @param probeType                   type of probe we're looking for (e.g. readiness or
+   *                                    liveness)
+   * @param requiredBundleSymbolicNames list of required bundle symbolic names
+   * @param scoped                      true to only verify the required bundles and their wiring
+   * @return a response entity to be sent in the HTTP response body as JSON
+   * @see HealthCheckResponse
+   * @see HealthCheckStatus
+   */
+  public HealthCheckResponse verifyBundles(
+      HealthCheckProbeType probeType,
+      Set<String> requiredBundleSymbolicNames,
+      boolean scoped) {
+
     String message = "No issues with bundles";
     List<String> issues = new ArrayList<>();
 
-    Set<Bundle> bundlesFound = Arrays.stream(_context.getBundles())
-                                     .filter(bundle -> requiredBundleSymbolicNames
-                                         .contains(bundle.getSymbolicName()))
-                                     .collect(Collectors.toSet());
+    Set<Bundle> bundlesFound = requiredBundleSymbolicNames.stream()
+                                                          .map(_bundleStateIndex::getBundle)
+                                                          .filter(Objects::nonNull)
+                                                          .collect(Collectors.toSet());
 
     HealthCheckResponse individualBundleHealthResponse =
         _checkIndividualBundleHealth(probeType, bundlesFound);
@@ -111,8 +159,12 @@ public class BundlesHealthCheck {
                                 .build();
     }
 
-    issues.addAll(_listResolvedBundles(_context.getBundles()));
-    issues.addAll(_listInstalledBundles(_context.getBundles()));
+    if (scoped) {
+      issues.addAll(_listWiredBundlesInUndesiredState(bundlesFound));
+    } else {
+      issues.addAll(_listResolvedBundles(_bundleStateIndex.getResolvedBundles()));
+      issues.addAll(_listInstalledBundles(_bundleStateIndex.getInstalledBundles()));
+    }
 
     if (!issues.isEmpty()) {
       message = "Found some required bundles in an undesired state.";
@@ -132,14 +184,20 @@ public class BundlesHealthCheck {
 
   /**
    * Check individual health of a list of bundles providing components implementing
-   * HealthCheckService, allowing them to provide their own definition of the readiness and liveness
-   * which can be independent from the bundle state itself.
+   * HealthCheckService or AsyncHealthCheckService, allowing them to provide their own definition of
+   * the readiness and liveness which can be independent from the bundle state itself. The checks run
+   * concurrently and a check which does not answer before its deadline, or before the probe
+   * deadline, is reported as an issue without waiting for it. Responses still valid according to
+   * the TTL declared by their service are reused without calling the check.
    *
    * @param probeType type of probe we're looking for (e.g. readiness or liveness)
    * @param bundles   list of bundles on which we want to gather the custom health check
    * @return a response entity to be sent in the HTTP response body as JSON
    * @see HealthCheckService
+   * @see AsyncHealthCheckService
    * @see HealthCheckProbeType
+   * @see HealthCheckConfiguration#customHealthCheckTimeout
+   * @see HealthCheckConfiguration#probeTimeout
    */
   private HealthCheckResponse _checkIndividualBundleHealth(
       HealthCheckProbeType probeType, Set<Bundle> bundles) {
@@ -147,31 +205,72 @@ public class BundlesHealthCheck {
     final List<HealthCheckStatus> downList = new ArrayList<>();
     final List<String> issues = new ArrayList<>();
 
-    ServiceReference<HealthCheckService>[] serviceReferences =
-        this.individualBundleHealthCheckServiceTracker.getServiceReferences();
-
-    Arrays.stream(serviceReferences).forEach(serviceReference -> {
-      Bundle observedBundle = serviceReference.getBundle();
-      if (bundles.contains(observedBundle)) {
-        HealthCheckService healthCheckService =
-            this.individualBundleHealthCheckServiceTracker.getService(serviceReference);
-        String symbolicName = serviceReference.getBundle().getSymbolicName();
-        HealthCheckResponse healthCheckResponse =
-            _getIndividualBundleHealthCheckResponse(probeType, healthCheckService);
-        if (HealthCheckStatus.DOWN.equals(healthCheckResponse.getStatus())) {
-          _log.warn("Bundle [" + symbolicName + "] declares being DOWN with following issues:");
-          healthCheckResponse.getIssues().forEach(_log::warn);
-          issues.addAll(healthCheckResponse.getIssues());
-          downList.add(HealthCheckStatus.DOWN);
+    HealthCheckConfiguration config = _config;
+    long start = System.nanoTime();
+    long checkTimeout = TimeUnit.MILLISECONDS.toNanos(config.customHealthCheckTimeout());
+    long probeTimeout = TimeUnit.MILLISECONDS.toNanos(config.probeTimeout());
+    long probeDeadline = start + probeTimeout;
+
+    // A check can wait for a worker before its own timeout starts
+    long stuckTimeout = checkTimeout + probeTimeout;
+
+    Map<Future<HealthCheckResponse>, String> futures = new LinkedHashMap<>();
+
+    int serviceCount = _runCustomChecks(
+        probeType, bundles, this.individualBundleHealthCheckServiceTracker,
+        (symbolicName, service) -> _callCustomCheck(
+            probeType, symbolicName, service, checkTimeout),
+        stuckTimeout, futures);
+    serviceCount += _runCustomChecks(
+        probeType, bundles, _asyncHealthCheckServiceTracker,
+        (symbolicName, service) -> _callAsyncCustomCheck(
+            probeType, symbolicName, service, checkTimeout),
+        stuckTimeout, futures);
+
+    for (Map.Entry<Future<HealthCheckResponse>, String> entry : futures.entrySet()) {
+      Future<HealthCheckResponse> future = entry.getKey();
+      String symbolicName = entry.getValue();
+      HealthCheckResponse healthCheckResponse;
+      try {
+        healthCheckResponse =
+            future.get(Math.max(0, probeDeadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+      } catch (TimeoutException e) {
+        _probeMetrics.recordCustomCheckTimeout(probeType, symbolicName);
+        issues.add("Bundle [" + symbolicName + "] health check did not answer within the probe "
+                       + "timeout of " + config.probeTimeout() + " ms");
+        downList.add(HealthCheckStatus.DOWN);
+        continue;
+      } catch (ExecutionException e) {
+        if (e.getCause() instanceof TimeoutException) {
+          _probeMetrics.recordCustomCheckTimeout(probeType, symbolicName);
+          issues.add("Bundle [" + symbolicName + "] health check timed out after "
+                         + config.customHealthCheckTimeout() + " ms");
+        } else if (e.getCause() instanceof CancellationException) {
+          issues.add("Bundle [" + symbolicName + "] health check was cancelled");
+        } else if (e.getCause() instanceof RejectedExecutionException) {
+          issues.add("Bundle [" + symbolicName + "] health check was rejected, "
+                         + "too many checks running");
         } else {
-          _log.info("Bundle [" + symbolicName + "] declares being UP");
+          _log.debug("Bundle [" + symbolicName + "] health check failed", e.getCause());
+          issues.add("Bundle [" + symbolicName + "] health check failed: " + e.getCause());
         }
+        downList.add(HealthCheckStatus.DOWN);
+        continue;
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        issues.add("Bundle [" + symbolicName + "] health check was interrupted");
+        downList.add(HealthCheckStatus.DOWN);
+        continue;
       }
-    });
+      if (HealthCheckStatus.DOWN.equals(healthCheckResponse.getStatus())) {
+        issues.addAll(healthCheckResponse.getIssues());
+        downList.add(HealthCheckStatus.DOWN);
+      }
+    }
 
     if (!downList.isEmpty()) {
       String message = String
-          .format("%d out of %d declares being down.", downList.size(), serviceReferences.length);
+          .format("%d out of %d declares being down.", downList.size(), serviceCount);
       return HealthCheckResponse
           .builder()
           .message(message)
@@ -188,85 +287,258 @@ public class BundlesHealthCheck {
 
   }
 
-  private HealthCheckResponse _getIndividualBundleHealthCheckResponse(
-      HealthCheckProbeType probeType, HealthCheckService healthCheckService) {
+  /**
+   * Get the responses of the custom health checks provided by a set of bundles, from the cache if
+   * they are still valid.
+   *
+   * @param probeType      type of probe we're looking for (e.g. readiness or liveness)
+   * @param bundles        bundles on which we want to gather the custom health check
+   * @param serviceTracker tracker of the custom health check services
+   * @param check          calls a custom health check, given the symbolic name of its bundle
+   * @param stuckTimeout   time after which a check still in progress is called again
+   * @param futures        responses of the checks, along with the symbolic name of their bundle
+   * @return the number of custom health check services
+   * @see CustomCheckResultCache
+   */
+  private <S> int _runCustomChecks(
+      HealthCheckProbeType probeType, Set<Bundle> bundles, ServiceTracker<S, S> serviceTracker,
+      BiFunction<String, S, CompletableFuture<HealthCheckResponse>> check, long stuckTimeout,
+      Map<Future<HealthCheckResponse>, String> futures) {
+
+    ServiceReference<S>[] serviceReferences = serviceTracker.getServiceReferences();
+
+    if (serviceReferences == null) {
+      return 0;
+    }
+
+    for (ServiceReference<S> serviceReference : serviceReferences) {
+      Bundle observedBundle = serviceReference.getBundle();
+      if (observedBundle == null || !bundles.contains(observedBundle)) {
+        continue;
+      }
+      S service = serviceTracker.getService(serviceReference);
+      if (service == null) {
+        continue;
+      }
+      String symbolicName = observedBundle.getSymbolicName();
+      CompletableFuture<HealthCheckResponse> future;
+      try {
+        future = _customCheckResultCache.get(
+            probeType, serviceReference, stuckTimeout, () -> check.apply(symbolicName, service));
+      } catch (RejectedExecutionException e) {
+        future = new CompletableFuture<>();
+        future.completeExceptionally(e);
+      }
+      // The refresh may be shared with other probes, wait on a copy of it
+      futures.put(future.thenApply(Function.identity()), symbolicName);
+    }
+
+    return serviceReferences.length;
+  }
+
+  /**
+   * Call a blocking custom health check on the worker pool. The check times out once it ran for
+   * the check timeout, the time spent waiting for a worker not being counted. Cancelling the
+   * returned future, or its timeout, interrupts the check.
+   */
+  private CompletableFuture<HealthCheckResponse> _callCustomCheck(
+      HealthCheckProbeType probeType, String symbolicName,
+      HealthCheckService healthCheckService, long checkTimeout) {
+
+    CompletableFuture<HealthCheckResponse> result = new CompletableFuture<>();
+
+    Future<?> task = _executor.submit(() -> {
+      if (result.isDone()) {
+        return;
+      }
+      _timeOut(result, checkTimeout);
+      try {
+        result.complete(
+            _getIndividualBundleHealthCheckResponse(probeType, symbolicName, healthCheckService));
+      } catch (Throwable t) {
+        result.completeExceptionally(t);
+      }
+    });
+
+    result.whenComplete((response, throwable) -> {
+      if (result.isCancelled() || throwable instanceof TimeoutException) {
+        task.cancel(true);
+      }
+    });
+
+    return result;
+  }
+
+  /**
+   * Call an asynchronous custom health check, which times out after the check timeout. Cancelling
+   * the returned future does not cancel the stage returned by the check.
+   */
+  private CompletableFuture<HealthCheckResponse> _callAsyncCustomCheck(
+      HealthCheckProbeType probeType, String symbolicName,
+      AsyncHealthCheckService asyncHealthCheckService, long checkTimeout) {
+
+    long start = System.nanoTime();
+    CompletableFuture<HealthCheckResponse> result = new CompletableFuture<>();
+    _timeOut(result, checkTimeout);
+
+    try {
+      CompletionStage<HealthCheckResponse> stage =
+          HealthCheckProbeType.READINESS.equals(probeType) ? asyncHealthCheckService.isReady()
+                                                           : asyncHealthCheckService.isLive();
+      stage.whenComplete((response, throwable) -> {
+        if (throwable != null) {
+          result.completeExceptionally(throwable);
+        } else {
+          result.complete(response);
+        }
+      });
+    } catch (Exception e) {
+      result.completeExceptionally(e);
+    }
+
+    result.whenComplete((response, throwable) -> _probeMetrics.recordCustomCheck(
+        probeType, symbolicName,
+        response != null ? response.getStatus() : HealthCheckStatus.DOWN,
+        System.nanoTime() - start));
 
-    if (HealthCheckProbeType.READINESS.equals(probeType)) {
-      return healthCheckService.isReady();
+    return result;
+  }
+
+  /**
+   * Complete a check with a TimeoutException if it did not answer within the given time.
+   */
+  private void _timeOut(CompletableFuture<HealthCheckResponse> result, long timeoutNanos) {
+
+    try {
+      ScheduledFuture<?> timeout = _timeoutScheduler.schedule(
+          () -> result.completeExceptionally(new TimeoutException()), timeoutNanos,
+          TimeUnit.NANOSECONDS);
+      result.whenComplete((response, throwable) -> timeout.cancel(false));
+    } catch (RejectedExecutionException e) {
+      // Deactivated: the probe timeout still bounds the wait
+    }
+  }
+
+  private HealthCheckResponse _getIndividualBundleHealthCheckResponse(
+      HealthCheckProbeType probeType, String symbolicName,
+      HealthCheckService healthCheckService) {
+
+    long start = System.nanoTime();
+    HealthCheckStatus status = HealthCheckStatus.DOWN;
+
+    try {
+      HealthCheckResponse healthCheckResponse =
+          HealthCheckProbeType.READINESS.equals(probeType) ? healthCheckService.isReady()
+                                                           : healthCheckService.isLive();
+      status = healthCheckResponse.getStatus();
+      return healthCheckResponse;
+    } finally {
+      _probeMetrics.recordCustomCheck(probeType, symbolicName, status, System.nanoTime() - start);
     }
-    return healthCheckService.isLive();
   }
 
   @Activate
-  public void activate(BundleContext bundleContext) {
+  public void activate(BundleContext bundleContext, Map<String, Object> properties) {
 
     _context = bundleContext;
-    this.individualBundleHealthCheckServiceTracker = new ServiceTracker<>(
-        _context, HealthCheckService.class, null);
-    this.individualBundleHealthCheckServiceTracker.open();
+    _config =
+        ConfigurableUtil.createConfigurable(HealthCheckConfiguration.class, properties);
 
+    int threads = Math.max(1, _config.customHealthCheckThreads());
+    _executor = new ThreadPoolExecutor(
+        threads, threads, 60, TimeUnit.SECONDS,
+        new ArrayBlockingQueue<>(_EXECUTOR_QUEUE_CAPACITY),
+        new HealthCheckThreadFactory("Health Check Worker"));
+    _executor.allowCoreThreadTimeOut(true);
+
+    _timeoutScheduler = new ScheduledThreadPoolExecutor(
+        1, new HealthCheckThreadFactory("Health Check Timeout"));
+    _timeoutScheduler.setRemoveOnCancelPolicy(true);
+
+    this.individualBundleHealthCheckServiceTracker = _openTracker(HealthCheckService.class);
+    _asyncHealthCheckServiceTracker = _openTracker(AsyncHealthCheckService.class);
+
+  }
+
+  @Modified
+  public void modified(Map<String, Object> properties) {
+
+    _config =
+        ConfigurableUtil.createConfigurable(HealthCheckConfiguration.class, properties);
+
+    int threads = Math.max(1, _config.customHealthCheckThreads());
+    if (threads > _executor.getMaximumPoolSize()) {
+      _executor.setMaximumPoolSize(threads);
+      _executor.setCorePoolSize(threads);
+    } else {
+      _executor.setCorePoolSize(threads);
+      _executor.setMaximumPoolSize(threads);
+    }
   }
 
   @Deactivate
   public void deactivate() {
 
     this.individualBundleHealthCheckServiceTracker.close();
+    _asyncHealthCheckServiceTracker.close();
+    _executor.shutdownNow();
+    _timeoutScheduler.shutdownNow();
+    _customCheckResultCache.clear();
   }
 
-  private List<String> _getIssues() {
+  /**
+   * Open a tracker of custom health check services, forgetting the responses of a service once it
+   * is unregistered.
+   */
+  private <S> ServiceTracker<S, S> _openTracker(Class<S> clazz) {
 
-    List<String> issues = new ArrayList<>();
+    ServiceTracker<S, S> serviceTracker = new ServiceTracker<S, S>(_context, clazz, null) {
+
+      @Override
+      public void removedService(ServiceReference<S> reference, S service) {
+
+        _customCheckResultCache.remove(reference);
+        super.removedService(reference, service);
+      }
+    };
+    serviceTracker.open();
+
+    return serviceTracker;
+  }
 
-    DependencyGraph graph = DependencyGraph
-        .getGraph(ComponentState.UNREGISTERED, DependencyState.REQUIRED_UNAVAILABLE);
+  private List<String> _getIssues(DependencyGraphSnapshot graph) {
 
-    issues.addAll(_listResolvedBundles(_context.getBundles()));
-    issues.addAll(_listInstalledBundles(_context.getBundles()));
+    List<String> issues = new ArrayList<>();
+
+    issues.addAll(_listResolvedBundles(_bundleStateIndex.getResolvedBundles()));
+    issues.addAll(_listInstalledBundles(_bundleStateIndex.getInstalledBundles()));
 
     List<CircularDependency> circularDependencies = graph.getCircularDependencies();
     if (!circularDependencies.isEmpty()) {
-      _log.warn("Circular dependencies:");
       issues.addAll(
           _getCircularDependenciesIssues(circularDependencies)
       );
     }
 
-    List<MissingDependency> missingConfigDependencies = graph
-        .getMissingDependencies("configuration");
-    if (!missingConfigDependencies.isEmpty()) {
-      _log.warn("The following configuration(s) are missing: ");
-      issues.addAll(
-          _getMissingDependenciesIssues(missingConfigDependencies)
-      );
-    }
-
-    List<MissingDependency> missingServiceDependencies = graph.getMissingDependencies("service");
-    if (!missingServiceDependencies.isEmpty()) {
-      _log.warn("The following service(s) are missing: ");
-      issues.addAll(
-          _getMissingDependenciesIssues(missingServiceDependencies)
-      );
+    for (MissingDependencyRootCause rootCause : graph.getRootCauses()) {
+      issues.add(rootCause.toIssue());
     }
 
-    List<MissingDependency> missingResourceDependencies = graph.getMissingDependencies("resource");
-    if (!missingResourceDependencies.isEmpty()) {
-      _log.warn("The following resource(s) are missing: ");
-      issues.addAll(
-          _getMissingDependenciesIssues(missingResourceDependencies)
-      );
+    if (!_config.flattenMissingDependencies()) {
+      return issues;
     }
 
-    List<MissingDependency> missingBundleDependencies = graph.getMissingDependencies("bundle");
-    if (!missingBundleDependencies.isEmpty()) {
-      _log.warn("The following bundle(s) are missing: ");
-      issues.addAll(
-          _getMissingDependenciesIssues(missingBundleDependencies)
-      );
+    for (String type : _DEPENDENCY_TYPES) {
+      List<MissingDependency> missingDependencies = graph.getMissingDependencies(type);
+      if (!missingDependencies.isEmpty()) {
+        issues.addAll(
+            _getMissingDependenciesIssues(missingDependencies)
+        );
+      }
     }
 
     List<MissingDependency> missingCustomDependencies = graph.getMissingCustomDependencies();
     if (!missingCustomDependencies.isEmpty()) {
-      _log.warn("The following custom dependency(ies) are missing: ");
       issues.addAll(
           _getMissingCustomDependenciesIssues(missingCustomDependencies)
       );
@@ -280,12 +552,8 @@ public class BundlesHealthCheck {
     List<String> issues = new ArrayList<>();
     circularDependencies
         .forEach(c -> {
-          _log.warn(" *");
           c.getComponents()
-           .forEach(cd -> {
-             _log.warn(" -> " + cd.getName());
-             issues.add(cd.getName());
-           });
+           .forEach(cd -> issues.add(cd.getName()));
         });
     return issues;
   }
@@ -294,10 +562,8 @@ public class BundlesHealthCheck {
 
     List<String> issues = new ArrayList<>();
     missingDependencies
-        .forEach(m -> {
-          _log.warn(" * " + m.getName() + " for bundle " + m.getBundleName());
-          issues.add("Missing dependency " + m.getName() + " for bundle " + m.getBundleName());
-        });
+        .forEach(m -> issues.add(
+            "Missing dependency " + m.getName() + " for bundle " + m.getBundleName()));
     return issues;
   }
 
@@ -306,68 +572,107 @@ public class BundlesHealthCheck {
 
     List<String> issues = new ArrayList<>();
     missingDependencies
-        .forEach(m -> {
-          _log.warn(
-              " * " + m.getName() + "(" + m.getType() + ")" + " for bundle " + m.getBundleName());
-          issues.add(
-              "Missing custom dependency " + m.getName() + "(" + m.getType() + ")" + " for bundle "
-                  + m.getBundleName());
-        });
+        .forEach(m -> issues.add(
+            "Missing custom dependency " + m.getName() + "(" + m.getType() + ")" + " for bundle "
+                + m.getBundleName()));
     return issues;
   }
 
-  private List<String> _listResolvedBundles(Bundle[] bundles) {
+  /**
+   * List the bundles in an undesired state among the given bundles and the bundles they are
+   * transitively wired to.
+   *
+   * @param bundles required bundles
+   * @return issues describing the bundles in an undesired state
+   */
+  private List<String> _listWiredBundlesInUndesiredState(Set<Bundle> bundles) {
 
-    List<String> resolveBundleNames = new ArrayList<>();
-    boolean areResolved = false;
-    for (Bundle b : bundles) {
-      if (b.getState() == Bundle.RESOLVED && !_isFragment(b)) {
-        areResolved = true;
-        break;
+    List<Bundle> resolvedBundles = new ArrayList<>();
+    List<Bundle> installedBundles = new ArrayList<>();
+    Set<Long> visitedBundleIds = new HashSet<>();
+    Deque<Bundle> bundlesToVisit = new ArrayDeque<>(bundles);
+
+    while (!bundlesToVisit.isEmpty()) {
+      Bundle bundle = bundlesToVisit.poll();
+      if (!visitedBundleIds.add(bundle.getBundleId())) {
+        continue;
       }
-    }
-    if (areResolved) {
-      _log.warn("Please note that the following bundles are in the RESOLVED state:");
-      for (Bundle b : bundles) {
-        if (b.getState() == Bundle.RESOLVED && !_isFragment(b)) {
-          resolveBundleNames
-              .add("[" + b.getBundleId() + "] " + b.getSymbolicName() + " is RESOLVED");
-          _log.warn(" * [{}] {}", b.getBundleId(), b.getSymbolicName());
+
+      int state = bundle.getState();
+      if (state == Bundle.INSTALLED) {
+        installedBundles.add(bundle);
+      } else if (state == Bundle.RESOLVED && !_bundleStateIndex.isFragment(bundle)) {
+        resolvedBundles.add(bundle);
+      }
+
+      BundleWiring wiring = bundle.adapt(BundleWiring.class);
+      if (wiring == null) {
+        continue;
+      }
+      List<BundleWire> requiredWires = wiring.getRequiredWires(null);
+      if (requiredWires == null) {
+        continue;
+      }
+      for (BundleWire wire : requiredWires) {
+        Bundle provider = wire.getProvider().getBundle();
+        if (provider != null && !visitedBundleIds.contains(provider.getBundleId())) {
+          bundlesToVisit.add(provider);
         }
       }
     }
+
+    resolvedBundles.sort(Comparator.comparingLong(Bundle::getBundleId));
+    installedBundles.sort(Comparator.comparingLong(Bundle::getBundleId));
+
+    List<String> issues = new ArrayList<>();
+    issues.addAll(_listResolvedBundles(resolvedBundles));
+    issues.addAll(_listInstalledBundles(installedBundles));
+    return issues;
+  }
+
+  private List<String> _listResolvedBundles(Collection<Bundle> bundles) {
+
+    List<String> resolveBundleNames = new ArrayList<>();
+    for (Bundle b : bundles) {
+      resolveBundleNames
+          .add("[" + b.getBundleId() + "] " + b.getSymbolicName() + " is RESOLVED");
+    }
     return resolveBundleNames;
   }
 
-  private List<String> _listInstalledBundles(Bundle[] bundles) {
+  private List<String> _listInstalledBundles(Collection<Bundle> bundles) {
 
     List<String> installedBundles = new ArrayList<>();
-    boolean areInstalled = false;
     for (Bundle b : bundles) {
-      if (b.getState() == Bundle.INSTALLED) {
-        areInstalled = true;
-        break;
-      }
-    }
-    if (areInstalled) {
-      _log.warn("Please note that the following bundles are in the INSTALLED state:");
-      for (Bundle b : bundles) {
-        if (b.getState() == Bundle.INSTALLED) {
-          installedBundles
-              .add("[" + b.getBundleId() + "] " + b.getSymbolicName() + " is INSTALLED");
-          _log.warn(" * [{}] {}", b.getBundleId(), b.getSymbolicName());
-        }
-      }
+      installedBundles
+          .add("[" + b.getBundleId() + "] " + b.getSymbolicName() + " is INSTALLED");
     }
     return installedBundles;
   }
 
-  private boolean _isFragment(Bundle b) {
+  @Reference
+  private BundleStateIndex _bundleStateIndex;
 
-    Dictionary<String, String> headers = b.getHeaders();
-    return headers.get("Fragment-Host") != null;
-  }
+  @Reference
+  private DependencyGraphTracker _dependencyGraphTracker;
+
+  @Reference
+  private ProbeMetrics _probeMetrics;
+
+  private static final int _EXECUTOR_QUEUE_CAPACITY = 64;
+
+  private ServiceTracker<AsyncHealthCheckService, AsyncHealthCheckService>
+      _asyncHealthCheckServiceTracker;
+
+  private final CustomCheckResultCache _customCheckResultCache = new CustomCheckResultCache();
+
+  private static final String[] _DEPENDENCY_TYPES = {
+      "configuration", "service", "resource", "bundle"
+  };
 
+  private volatile HealthCheckConfiguration _config;
+  private ThreadPoolExecutor _executor;
+  private ScheduledThreadPoolExecutor _timeoutScheduler;
   private BundleContext _context;
   private static final Logger _log = LoggerFactory.getLogger(BundlesHealthCheck.class);
 }
@@ -1,21 +1,24 @@
 package com.github.lgdd.liferay.health;
 
 import com.github.lgdd.liferay.health.api.HealthCheckResponse;
+import com.liferay.portal.configuration.metatype.bnd.util.ConfigurableUtil;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import org.apache.felix.dm.ComponentDeclaration;
-import org.apache.felix.dm.diagnostics.DependencyGraph;
 import org.osgi.framework.Bundle;
 import org.osgi.framework.BundleContext;
+import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import org.osgi.service.component.annotations.Modified;
+import org.osgi.service.component.annotations.Reference;
 
 import com.github.lgdd.liferay.health.api.HealthCheckStatus;
 
 
 @Component(
     immediate = true,
+    configurationPid = HealthCheckConfiguration.PID,
     service = ComponentsHealthCheck.class
 )
 public class ComponentsHealthCheck {
@@ -33,12 +36,10 @@ public class ComponentsHealthCheck {
     HealthCheckStatus status = HealthCheckStatus.UP;
     String message = OK_MESSAGE;
 
-    DependencyGraph graph = DependencyGraph.getGraph(
-        DependencyGraph.ComponentState.UNREGISTERED,
-        DependencyGraph.DependencyState.REQUIRED_UNAVAILABLE);
+    DependencyGraphSnapshot snapshot = _dependencyGraphTracker.getSnapshot();
 
     List<ComponentDeclaration> unregisteredComponents =
-        graph.getAllComponents();
+        snapshot.getUnregisteredComponents();
 
     if (!unregisteredComponents.isEmpty()) {
       status = HealthCheckStatus.DOWN;
@@ -46,10 +47,24 @@ public class ComponentsHealthCheck {
           unregisteredComponents.size() +
               " unregistered components found";
 
-      _log.warn(message);
+      List<MissingDependencyRootCause> rootCauses = snapshot.getRootCauses();
+
+      if (!rootCauses.isEmpty()) {
+        message += ", caused by " + rootCauses.size()
+            + (rootCauses.size() > 1 ? " missing dependencies" : " missing dependency");
+      }
+
+      for (MissingDependencyRootCause rootCause : rootCauses) {
+        issues.add(rootCause.toIssue());
+      }
+
+      // The components blocked by a root cause are only listed on demand
+      List<ComponentDeclaration> listedComponents =
+          _config.flattenMissingDependencies() ? unregisteredComponents
+                                               : snapshot.getUnexplainedComponents();
 
       for (ComponentDeclaration componentDeclaration :
-          unregisteredComponents) {
+          listedComponents) {
 
         BundleContext bundleContext =
             componentDeclaration.getBundleContext();
@@ -58,10 +73,6 @@ public class ComponentsHealthCheck {
           Bundle bundle = bundleContext.getBundle();
 
           if (bundle != null) {
-            _log.warn(
-                "Found unregistered component " +
-                    componentDeclaration.getName() +
-                    " in bundle: " + bundle.getSymbolicName());
             issues.add("Unregistered component " +
                            componentDeclaration.getName() +
                            " in bundle: " + bundle.getSymbolicName());
@@ -73,11 +84,23 @@ public class ComponentsHealthCheck {
                               .status(status)
                               .message(message)
                               .issues(issues)
+                              .generation(snapshot.getGeneration())
                               .build();
   }
 
-  public static final String OK_MESSAGE = "No unregistered components found";
+  @Activate
+  @Modified
+  public void activate(Map<String, Object> properties) {
 
-  private final static Logger _log = LoggerFactory.getLogger(ComponentsHealthCheck.class);
+    _config =
+        ConfigurableUtil.createConfigurable(HealthCheckConfiguration.class, properties);
+  }
+
+  private volatile HealthCheckConfiguration _config;
+
+  @Reference
+  private DependencyGraphTracker _dependencyGraphTracker;
+
+  public static final String OK_MESSAGE = "No unregistered components found";
 
 }
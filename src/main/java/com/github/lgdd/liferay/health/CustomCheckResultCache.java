@@ -0,0 +1,184 @@
+package com.github.lgdd.liferay.health;
+
+import com.github.lgdd.liferay.health.api.AsyncHealthCheckService;
+import com.github.lgdd.liferay.health.api.HealthCheckResponse;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import org.osgi.framework.Constants;
+import org.osgi.framework.ServiceReference;
+
+/**
+ * Keep the response of each custom health check for the time declared by its service with the
+ * {@link AsyncHealthCheckService#TTL} property, and share a check in progress between the probes
+ * needing it. The last result of a check declaring a high {@link AsyncHealthCheckService#COST},
+ * either its response or its failure, is returned while the check runs again in the background, so
+ * it is only called inline until it answered once, or once its last result expired for longer than
+ * its TTL or the check timeout.
+ */
+public class CustomCheckResultCache {
+
+  /**
+   * @param probeType        type of probe we're looking for (e.g. readiness or liveness)
+   * @param serviceReference reference of the custom health check service
+   * @param timeoutNanos     time after which a check still in progress is cancelled and called
+   *                         again
+   * @param check            calls the custom health check
+   * @return the response of the check, completed right away if it is still valid
+   * @throws java.util.concurrent.RejectedExecutionException if the check could not be called
+   */
+  public CompletableFuture<HealthCheckResponse> get(
+      HealthCheckProbeType probeType, ServiceReference<?> serviceReference, long timeoutNanos,
+      Supplier<CompletableFuture<HealthCheckResponse>> check) {
+
+    Entry entry = _entries[probeType.ordinal()].computeIfAbsent(
+        (Long) serviceReference.getProperty(Constants.SERVICE_ID), serviceId -> new Entry());
+    boolean expensive = AsyncHealthCheckService.COST_HIGH
+        .equals(serviceReference.getProperty(AsyncHealthCheckService.COST));
+    long ttlNanos = TimeUnit.MILLISECONDS.toNanos(_getTtl(serviceReference));
+    long maxStaleNanos = Math.max(ttlNanos, timeoutNanos);
+    long now = System.nanoTime();
+
+    synchronized (entry) {
+      if (entry.response != null && now - entry.expiresAt < 0) {
+        return CompletableFuture.completedFuture(entry.response);
+      }
+
+      if (entry.refresh != null) {
+        if (now - entry.refreshStart < timeoutNanos) {
+          CompletableFuture<HealthCheckResponse> lastResult =
+              expensive ? _getLastResult(entry, now, maxStaleNanos) : null;
+          return lastResult != null ? lastResult : entry.refresh;
+        }
+        // The check is stuck: its last result can't be trusted anymore
+        CompletableFuture<HealthCheckResponse> stuckRefresh = entry.refresh;
+        entry.refresh = null;
+        entry.response = null;
+        entry.failure = null;
+        stuckRefresh.cancel(true);
+      }
+
+      CompletableFuture<HealthCheckResponse> refresh = check.get();
+
+      entry.refresh = refresh;
+      entry.refreshStart = now;
+
+      refresh.whenComplete((response, throwable) -> {
+        synchronized (entry) {
+          if (entry.refresh != refresh) {
+            return;
+          }
+          entry.refresh = null;
+          if (response != null) {
+            entry.response = response;
+            entry.failure = null;
+            entry.expiresAt = System.nanoTime() + ttlNanos;
+          } else {
+            // Returned as the last result of an expensive check, never as a valid one
+            entry.response = null;
+            entry.failure = throwable instanceof CompletionException
+                            && throwable.getCause() != null ? throwable.getCause() : throwable;
+            entry.expiresAt = System.nanoTime();
+          }
+        }
+      });
+
+      if (expensive && entry.refresh != null) {
+        CompletableFuture<HealthCheckResponse> lastResult =
+            _getLastResult(entry, now, maxStaleNanos);
+        if (lastResult != null) {
+          return lastResult;
+        }
+      }
+
+      return refresh;
+    }
+  }
+
+  /**
+   * @return the last response or failure of a check, or null if there is none or if it expired for
+   * longer than the given time
+   */
+  private static CompletableFuture<HealthCheckResponse> _getLastResult(
+      Entry entry, long now, long maxStaleNanos) {
+
+    if (now - entry.expiresAt >= maxStaleNanos) {
+      return null;
+    }
+
+    if (entry.response != null) {
+      return CompletableFuture.completedFuture(entry.response);
+    }
+
+    if (entry.failure != null) {
+      CompletableFuture<HealthCheckResponse> lastResult = new CompletableFuture<>();
+      lastResult.completeExceptionally(entry.failure);
+      return lastResult;
+    }
+
+    return null;
+  }
+
+  /**
+   * Forget the responses of a custom health check service, e.g. once it is unregistered.
+   */
+  public void remove(ServiceReference<?> serviceReference) {
+
+    Object serviceId = serviceReference.getProperty(Constants.SERVICE_ID);
+    for (Map<Long, Entry> entries : _entries) {
+      entries.remove(serviceId);
+    }
+  }
+
+  public void clear() {
+
+    for (Map<Long, Entry> entries : _entries) {
+      entries.clear();
+    }
+  }
+
+  private static long _getTtl(ServiceReference<?> serviceReference) {
+
+    Object ttl = serviceReference.getProperty(AsyncHealthCheckService.TTL);
+
+    if (ttl instanceof Number) {
+      return Math.max(0, ((Number) ttl).longValue());
+    }
+    if (ttl instanceof String) {
+      try {
+        return Math.max(0, Long.parseLong(((String) ttl).trim()));
+      } catch (NumberFormatException e) {
+        return 0;
+      }
+    }
+    return 0;
+  }
+
+  /**
+   * Last response or failure of a custom health check for a probe type, and the check in progress,
+   * if any.
+   */
+  private static class Entry {
+
+    HealthCheckResponse response;
+    Throwable failure;
+    long expiresAt;
+    CompletableFuture<HealthCheckResponse> refresh;
+    long refreshStart;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Map<Long, Entry>[] _newEntries() {
+
+    Map<Long, Entry>[] entries = new Map[HealthCheckProbeType.values().length];
+    for (int i = 0; i < entries.length; i++) {
+      entries[i] = new ConcurrentHashMap<>();
+    }
+    return entries;
+  }
+
+  private final Map<Long, Entry>[] _entries = _newEntries();
+}
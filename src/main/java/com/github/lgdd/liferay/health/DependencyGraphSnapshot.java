@@ -0,0 +1,59 @@
+package com.github.lgdd.liferay.health;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import lombok.Value;
+import org.apache.felix.dm.ComponentDeclaration;
+import org.apache.felix.dm.diagnostics.CircularDependency;
+import org.apache.felix.dm.diagnostics.MissingDependency;
+
+/**
+ * Immutable result of a walk through the Felix Dependency Manager graph, restricted to the
+ * unregistered components and their unavailable required dependencies.
+ *
+ * @see DependencyGraphTracker
+ */
+@Value
+public class DependencyGraphSnapshot {
+
+  /**
+   * Incremented each time the graph is recomputed.
+   */
+  long generation;
+
+  /**
+   * Time at which the graph was recomputed, in milliseconds since the epoch.
+   */
+  long timestamp;
+
+  List<ComponentDeclaration> unregisteredComponents;
+
+  List<CircularDependency> circularDependencies;
+
+  Map<String, List<MissingDependency>> missingDependencies;
+
+  List<MissingDependency> missingCustomDependencies;
+
+  /**
+   * Missing dependencies explaining the unregistered components, the ones blocking the most
+   * components first.
+   */
+  List<MissingDependencyRootCause> rootCauses;
+
+  /**
+   * Unregistered components not explained by any root cause, e.g. components in a circular
+   * dependency.
+   */
+  List<ComponentDeclaration> unexplainedComponents;
+
+  /**
+   * @param type type of dependency (e.g. configuration, service, resource or bundle)
+   * @return missing dependencies of the given type
+   */
+  public List<MissingDependency> getMissingDependencies(String type) {
+
+    return missingDependencies.getOrDefault(type, Collections.emptyList());
+  }
+
+}
@@ -0,0 +1,230 @@
+package com.github.lgdd.liferay.health;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import org.apache.felix.dm.ComponentDeclaration;
+import org.apache.felix.dm.ComponentDependencyDeclaration;
+import org.apache.felix.dm.diagnostics.DependencyGraph;
+import org.apache.felix.dm.diagnostics.DependencyGraph.ComponentState;
+import org.apache.felix.dm.diagnostics.DependencyGraph.DependencyState;
+import org.apache.felix.dm.diagnostics.MissingDependency;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.BundleEvent;
+import org.osgi.framework.BundleListener;
+import org.osgi.framework.ServiceEvent;
+import org.osgi.framework.ServiceListener;
+import org.osgi.service.cm.ConfigurationEvent;
+import org.osgi.service.cm.ConfigurationListener;
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Deactivate;
+
+/**
+ * Share a snapshot of the Felix Dependency Manager graph between health checks. The graph is only
+ * recomputed when the framework signals a change (service, bundle or configuration event) since
+ * the last snapshot, otherwise the snapshot is served from memory.
+ *
+ * @see DependencyGraphSnapshot
+ */
+@Component(
+    immediate = true,
+    service = {DependencyGraphTracker.class, ConfigurationListener.class}
+)
+public class DependencyGraphTracker
+    implements BundleListener, ConfigurationListener, ServiceListener {
+
+  /**
+   * @return the current snapshot, recomputed first if the framework changed since the last one
+   */
+  public DependencyGraphSnapshot getSnapshot() {
+
+    DependencyGraphSnapshot snapshot = _snapshot;
+
+    if (snapshot == null || _snapshotChangeCount != _changeCount.get()) {
+      synchronized (this) {
+        snapshot = _snapshot;
+        if (snapshot == null || _snapshotChangeCount != _changeCount.get()) {
+          long changeCount = _changeCount.get();
+          snapshot = _buildSnapshot(snapshot == null ? 1 : snapshot.getGeneration() + 1);
+          _snapshot = snapshot;
+          _snapshotChangeCount = changeCount;
+        }
+      }
+    }
+
+    return snapshot;
+  }
+
+  /**
+   * @return the last snapshot computed, without recomputing it, or null if there is none yet
+   */
+  public DependencyGraphSnapshot getLastSnapshot() {
+
+    return _snapshot;
+  }
+
+  @Override
+  public void bundleChanged(BundleEvent event) {
+
+    _changeCount.incrementAndGet();
+  }
+
+  @Override
+  public void configurationEvent(ConfigurationEvent event) {
+
+    _changeCount.incrementAndGet();
+  }
+
+  @Override
+  public void serviceChanged(ServiceEvent event) {
+
+    _changeCount.incrementAndGet();
+  }
+
+  private DependencyGraphSnapshot _buildSnapshot(long generation) {
+
+    DependencyGraph graph = DependencyGraph
+        .getGraph(ComponentState.UNREGISTERED, DependencyState.REQUIRED_UNAVAILABLE);
+
+    Map<String, List<MissingDependency>> missingDependencies = new HashMap<>();
+    for (String type : _DEPENDENCY_TYPES) {
+      missingDependencies.put(
+          type, Collections.unmodifiableList(graph.getMissingDependencies(type)));
+    }
+
+    List<ComponentDeclaration> components = graph.getAllComponents();
+    Set<ComponentDeclaration> explainedComponents = new HashSet<>();
+
+    return new DependencyGraphSnapshot(
+        generation,
+        System.currentTimeMillis(),
+        Collections.unmodifiableList(components),
+        Collections.unmodifiableList(graph.getCircularDependencies()),
+        Collections.unmodifiableMap(missingDependencies),
+        Collections.unmodifiableList(graph.getMissingCustomDependencies()),
+        Collections.unmodifiableList(_getRootCauses(graph, explainedComponents)),
+        Collections.unmodifiableList(
+            components.stream()
+                      .filter(component -> !explainedComponents.contains(component))
+                      .collect(Collectors.toList()))
+    );
+  }
+
+  /**
+   * Find the missing dependencies no component of the graph provides, and count the components
+   * they block directly or through the components depending on them. Every other unavailable
+   * dependency of the graph is provided by an unregistered component, so it is explained by the
+   * root causes of that component.
+   *
+   * @param graph               graph of the unregistered components and their unavailable
+   *                            dependencies
+   * @param explainedComponents filled with the components blocked by at least one root cause
+   * @return the root causes, the ones blocking the most components first
+   */
+  private List<MissingDependencyRootCause> _getRootCauses(
+      DependencyGraph graph, Set<ComponentDeclaration> explainedComponents) {
+
+    Map<String, List<ComponentDeclaration>> requiringComponentsByRoot = new LinkedHashMap<>();
+    Map<String, ComponentDependencyDeclaration> dependenciesByRoot = new HashMap<>();
+    Map<ComponentDeclaration, List<ComponentDeclaration>> dependentComponents = new HashMap<>();
+
+    for (ComponentDeclaration component : graph.getAllComponents()) {
+      for (ComponentDependencyDeclaration dependency : graph.getDependecies(component)) {
+        List<ComponentDeclaration> providers = graph.getProviders(dependency);
+
+        if (providers.isEmpty()) {
+          String root = dependency.getType() + " " + dependency.getName();
+          dependenciesByRoot.putIfAbsent(root, dependency);
+          requiringComponentsByRoot.computeIfAbsent(root, k -> new ArrayList<>()).add(component);
+        } else {
+          for (ComponentDeclaration provider : providers) {
+            dependentComponents.computeIfAbsent(provider, k -> new ArrayList<>()).add(component);
+          }
+        }
+      }
+    }
+
+    List<MissingDependencyRootCause> rootCauses = new ArrayList<>();
+
+    for (Map.Entry<String, List<ComponentDeclaration>> entry :
+        requiringComponentsByRoot.entrySet()) {
+
+      List<ComponentDeclaration> requiringComponents = entry.getValue();
+      Set<ComponentDeclaration> affectedComponents = new HashSet<>(requiringComponents);
+      Deque<ComponentDeclaration> componentsToVisit = new ArrayDeque<>(affectedComponents);
+
+      while (!componentsToVisit.isEmpty()) {
+        for (ComponentDeclaration dependent :
+            dependentComponents.getOrDefault(componentsToVisit.poll(), Collections.emptyList())) {
+          if (affectedComponents.add(dependent)) {
+            componentsToVisit.add(dependent);
+          }
+        }
+      }
+
+      explainedComponents.addAll(affectedComponents);
+
+      Set<String> bundleNames = new TreeSet<>();
+      for (ComponentDeclaration component : requiringComponents) {
+        BundleContext bundleContext = component.getBundleContext();
+        Bundle bundle = bundleContext != null ? bundleContext.getBundle() : null;
+        if (bundle != null) {
+          bundleNames.add(bundle.getSymbolicName());
+        }
+      }
+
+      ComponentDependencyDeclaration dependency = dependenciesByRoot.get(entry.getKey());
+
+      rootCauses.add(new MissingDependencyRootCause(
+          dependency.getType(), dependency.getName(), new ArrayList<>(bundleNames),
+          new HashSet<>(requiringComponents).size(), affectedComponents.size()));
+    }
+
+    rootCauses.sort(
+        Comparator.comparingInt(MissingDependencyRootCause::getAffectedComponentCount)
+                  .reversed()
+                  .thenComparing(MissingDependencyRootCause::getName));
+
+    return rootCauses;
+  }
+
+  @Activate
+  public void activate(BundleContext bundleContext) {
+
+    _context = bundleContext;
+    _context.addBundleListener(this);
+    _context.addServiceListener(this);
+  }
+
+  @Deactivate
+  public void deactivate() {
+
+    _context.removeServiceListener(this);
+    _context.removeBundleListener(this);
+    _snapshot = null;
+  }
+
+  private static final String[] _DEPENDENCY_TYPES = {
+      "configuration", "service", "resource", "bundle"
+  };
+
+  private final AtomicLong _changeCount = new AtomicLong();
+
+  private volatile DependencyGraphSnapshot _snapshot;
+  private volatile long _snapshotChangeCount;
+
+  private BundleContext _context;
+}
@@ -0,0 +1,21 @@
+package com.github.lgdd.liferay.health;
+
+import com.github.lgdd.liferay.health.api.HealthCheckResponse;
+import javax.ws.rs.core.EntityTag;
+import lombok.Value;
+
+/**
+ * A probe response along with its JSON encoding and the entity tag identifying this encoding.
+ *
+ * @see EncodedResponseCache
+ */
+@Value
+public class EncodedResponse {
+
+  HealthCheckResponse response;
+
+  byte[] body;
+
+  EntityTag entityTag;
+
+}
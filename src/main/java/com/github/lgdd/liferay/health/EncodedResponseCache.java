@@ -0,0 +1,63 @@
+package com.github.lgdd.liferay.health;
+
+import com.github.lgdd.liferay.health.api.HealthCheckResponse;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import javax.ws.rs.core.EntityTag;
+
+/**
+ * Keep the last encoded response of each probe type, so an unchanged result is neither serialized
+ * nor hashed again. A result is unchanged if it is the same instance as the cached one (e.g. served
+ * by the scheduled evaluation) or if it is equal to it, whatever its generation.
+ */
+public class EncodedResponseCache {
+
+  /**
+   * @param probeType type of probe we're looking for (e.g. readiness or liveness)
+   * @param response  response entity of the probe
+   * @return the encoded response, from the cache if the response did not change
+   */
+  public EncodedResponse encode(HealthCheckProbeType probeType, HealthCheckResponse response) {
+
+    EncodedResponse encodedResponse = _encodedResponses.get(probeType.ordinal());
+
+    if (encodedResponse != null) {
+      HealthCheckResponse cachedResponse = encodedResponse.getResponse();
+      if (cachedResponse == response || cachedResponse.equals(response)) {
+        return encodedResponse;
+      }
+    }
+
+    byte[] body = response.toJsonBytes();
+    encodedResponse = new EncodedResponse(response, body, new EntityTag(_digest(body)));
+    _encodedResponses.set(probeType.ordinal(), encodedResponse);
+
+    return encodedResponse;
+  }
+
+  public void clear() {
+
+    for (int i = 0; i < _encodedResponses.length(); i++) {
+      _encodedResponses.set(i, null);
+    }
+  }
+
+  private static String _digest(byte[] body) {
+
+    try {
+      byte[] digest = MessageDigest.getInstance("SHA-1").digest(body);
+      StringBuilder sb = new StringBuilder(digest.length * 2);
+      for (byte b : digest) {
+        sb.append(Character.forDigit((b >> 4) & 0xF, 16));
+        sb.append(Character.forDigit(b & 0xF, 16));
+      }
+      return sb.toString();
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private final AtomicReferenceArray<EncodedResponse> _encodedResponses =
+      new AtomicReferenceArray<>(HealthCheckProbeType.values().length);
+}
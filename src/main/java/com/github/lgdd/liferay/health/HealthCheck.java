@@ -3,22 +3,47 @@ package com.github.lgdd.liferay.health;
 import com.github.lgdd.liferay.health.api.HealthCheckResponse;
 import com.github.lgdd.liferay.health.api.HealthCheckStatus;
 import com.liferay.portal.configuration.metatype.bnd.util.ConfigurableUtil;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import javax.servlet.http.HttpServletRequest;
+import javax.ws.rs.DefaultValue;
 import javax.ws.rs.GET;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
 import javax.ws.rs.core.Application;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.sse.Sse;
+import javax.ws.rs.sse.SseEventSink;
 import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Deactivate;
 import org.osgi.service.component.annotations.Modified;
 import org.osgi.service.component.annotations.Reference;
 import org.osgi.service.jaxrs.whiteboard.JaxrsWhiteboardConstants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 @Component(
     immediate = true,
@@ -29,7 +54,7 @@ import org.osgi.service.jaxrs.whiteboard.JaxrsWhiteboardConstants;
         "liferay.access.control.disable=true"
     },
     configurationPid = HealthCheckConfiguration.PID,
-    service = Application.class
+    service = {Application.class, HealthCheck.class}
 )
 public class HealthCheck
     extends Application {
@@ -37,107 +62,487 @@ public class HealthCheck
   @GET
   @Path("/readiness")
   @Produces(MediaType.APPLICATION_JSON)
-  public Response readiness() {
+  public void readiness(
+      @Suspended AsyncResponse asyncResponse, @Context Request request,
+      @Context HttpServletRequest httpServletRequest) {
 
-    return _verifyRequiredBundles(
-        HealthCheckProbeType.READINESS,
-        _config.bundleSymbolicNamesForReadiness(),
-        _config.verifyBundlesStatesForReadiness()
-    );
+    _resume(
+        HealthCheckProbeType.READINESS, _getRemoteAddress(httpServletRequest), asyncResponse,
+        response -> _toResponse(HealthCheckProbeType.READINESS, response, request));
   }
 
   @GET
   @Path("/liveness")
   @Produces(MediaType.APPLICATION_JSON)
-  public Response liveness() {
+  public void liveness(
+      @Suspended AsyncResponse asyncResponse, @Context Request request,
+      @Context HttpServletRequest httpServletRequest) {
 
-    return _verifyRequiredBundles(
-        HealthCheckProbeType.LIVENESS,
-        _config.bundleSymbolicNamesForLiveness(),
-        _config.verifyBundlesStatesForLiveness()
-    );
+    _resume(
+        HealthCheckProbeType.LIVENESS, _getRemoteAddress(httpServletRequest), asyncResponse,
+        response -> _toResponse(HealthCheckProbeType.LIVENESS, response, request));
   }
 
   /**
-   * Verify if the required bundles from the configuration are present and in a proper state, i.e.
-   * ACTIVE or RESOLVED if the bundle is a fragment.
+   * Get the issues of a probe added or removed since a version known by the client, or all of them
+   * if that version is not known anymore. The probe is evaluated like for its own endpoint.
    *
-   * @param probeType                   type of probe we're looking for (e.g. readiness or
-   *                                    liveness)
-   * @param requiredBundleSymbolicNames list of required bundle symbolic names
-   * @param isVerificationRequired      true if all bundle states need to be verified (passed to the
-   *                                    next method)
-   * @return HTTP response corresponding to the result
-   * @see HealthCheckResponse
-   * @see HealthCheckConfiguration
-   * @see BundlesHealthCheck#verifyBundles
-   * @see HealthCheck#_verifyBundlesStates
+   * @param probe name of the probe, readiness or liveness
+   * @param since version of the issues known by the client, 0 if none
+   * @see IssueVersionHistory
+   */
+  @GET
+  @Path("/issues")
+  @Produces(MediaType.APPLICATION_JSON)
+  public void issues(
+      @Suspended AsyncResponse asyncResponse, @Context HttpServletRequest httpServletRequest,
+      @QueryParam("probe") @DefaultValue("readiness") String probe,
+      @QueryParam("since") @DefaultValue("0") long since) {
+
+    HealthCheckProbeType probeType = null;
+    for (HealthCheckProbeType scheduledProbeType : _SCHEDULED_PROBE_TYPES) {
+      if (scheduledProbeType.name().equalsIgnoreCase(probe)) {
+        probeType = scheduledProbeType;
+      }
+    }
+
+    if (probeType == null) {
+      asyncResponse.resume(Response.status(Response.Status.BAD_REQUEST).build());
+      return;
+    }
+
+    HealthCheckProbeType issuesProbeType = probeType;
+
+    _resume(
+        issuesProbeType, _getRemoteAddress(httpServletRequest), asyncResponse,
+        response -> Response.ok(
+            _issueVersionHistory.getIssues(issuesProbeType, since).toJsonBytes(),
+            MediaType.APPLICATION_JSON_TYPE).build());
+  }
+
+  @GET
+  @Path("/startup")
+  @Produces(MediaType.APPLICATION_JSON)
+  public Response startup(@Context Request request) {
+
+    long start = System.nanoTime();
+    HealthCheckResponse response = _startupTracker.getResponse();
+    long duration = System.nanoTime() - start;
+    _probeMetrics.recordProbe(HealthCheckProbeType.STARTUP, response.getStatus(), duration);
+    _probeHistory.record(
+        HealthCheckProbeType.STARTUP, response.getStatus(), duration, response.getIssues());
+
+    return _toResponse(HealthCheckProbeType.STARTUP, response, request);
+  }
+
+  /**
+   * Get the recent outcomes of a probe, along with the number of status changes and the 99th
+   * percentile of the duration within a window.
+   *
+   * @param probe        name of the probe, readiness, liveness or startup
+   * @param windowMillis length of the window ending now, 0 for every outcome kept
+   * @see ProbeHistory
+   */
+  @GET
+  @Path("/history")
+  @Produces(MediaType.APPLICATION_JSON)
+  public Response history(
+      @QueryParam("probe") @DefaultValue("readiness") String probe,
+      @QueryParam("window") @DefaultValue("0") long windowMillis) {
+
+    for (HealthCheckProbeType probeType : HealthCheckProbeType.values()) {
+      if (probeType.name().equalsIgnoreCase(probe)) {
+        return Response.ok(_probeHistory.toJson(probeType, windowMillis)).build();
+      }
+    }
+
+    return Response.status(Response.Status.BAD_REQUEST).build();
+  }
+
+  @GET
+  @Path("/watch")
+  @Produces(MediaType.SERVER_SENT_EVENTS)
+  public void watch(
+      @Context SseEventSink sseEventSink, @Context Sse sse,
+      @Context HttpServletRequest httpServletRequest) {
+
+    HealthCheckConfiguration config = _config;
+
+    if (!_probeRateLimiter.tryAcquire(
+        _getRemoteAddress(httpServletRequest), config.probeRateLimit(),
+        config.probeRateLimitPerClient())) {
+      throw new WebApplicationException(_tooManyRequests(_RATE_LIMITED_WATCH_MESSAGE));
+    }
+
+    if (!_healthWatchBroadcaster.subscribe(
+        sseEventSink, sse, config.watchBufferCapacity(), config.watchMaxSubscribers())) {
+      throw new WebApplicationException(_tooManyRequests(_TOO_MANY_WATCHERS_MESSAGE));
+    }
+  }
+
+  @GET
+  @Path("/metrics")
+  @Produces(ProbeMetrics.CONTENT_TYPE)
+  public Response metrics() {
+
+    return Response.ok(_probeMetrics.scrape()).build();
+  }
+
+  /**
+   * @param probeType type of probe we're looking for (e.g. readiness or liveness)
+   * @return the latest result of the probe, whether it was evaluated for a request, on schedule or
+   * on refresh, or null if it has not been evaluated yet
+   */
+  public ProbeResult getLastResult(HealthCheckProbeType probeType) {
+
+    return _probeResultCache.get(probeType);
+  }
+
+  /**
+   * Evaluate a probe right away, regardless of the rate limits and of the minimum evaluation
+   * interval, and keep its result like any other evaluation.
+   *
+   * @param probeType type of probe we're looking for (e.g. readiness or liveness)
+   * @return a response entity to be sent in the HTTP response body as JSON
    */
-  private Response _verifyRequiredBundles(
-      HealthCheckProbeType probeType,
-      String[] requiredBundleSymbolicNames,
-      boolean isVerificationRequired) {
+  public HealthCheckResponse refresh(HealthCheckProbeType probeType) {
+
+    if (HealthCheckProbeType.STARTUP.equals(probeType)) {
+      return _startupTracker.getResponse();
+    }
+
+    ProbePlan probePlan = _probePlans[probeType.ordinal()];
+
+    return _probeCoalescer.evaluate(probeType, () -> _evaluate(probePlan));
+  }
+
+  /**
+   * Resume a suspended probe request with the response of the probe. The latest scheduled
+   * evaluation is returned right away, otherwise the evaluation is handed to the probe executor so
+   * the HTTP request thread is released. A request is answered with 503 if the executor queue is
+   * full or if the evaluation does not end before the probe response timeout.
+   * <p>
+   * A request over the rate limits is answered with the latest result of the probe without
+   * evaluating it, or with 429 if the probe has not been evaluated yet.
+   *
+   * @param probeType     type of probe we're looking for (e.g. readiness or liveness)
+   * @param remoteAddress address of the client, or null if unknown
+   * @param asyncResponse suspended response of the HTTP request
+   * @param toResponse    builds the HTTP response from the response of the probe
+   * @see HealthCheckConfiguration#probeResponseTimeout
+   * @see HealthCheckConfiguration#probeRateLimit
+   * @see HealthCheckConfiguration#probeRateLimitPerClient
+   */
+  private void _resume(
+      HealthCheckProbeType probeType, String remoteAddress, AsyncResponse asyncResponse,
+      Function<HealthCheckResponse, Response> toResponse) {
+
+    HealthCheckConfiguration config = _config;
+
+    if (config.scheduledEvaluation()) {
+      asyncResponse.resume(toResponse.apply(_getResponse(probeType)));
+      return;
+    }
+
+    if (!_probeRateLimiter.tryAcquire(
+        remoteAddress, config.probeRateLimit(), config.probeRateLimitPerClient())) {
+
+      if (_probeResultCache.get(probeType) == null) {
+        asyncResponse.resume(_tooManyRequests(_RATE_LIMITED_MESSAGE));
+      } else {
+        asyncResponse.resume(
+            toResponse.apply(_probeResultCache.getResponse(probeType, config.maxStaleness())));
+      }
+      return;
+    }
+
+    asyncResponse.setTimeoutHandler(
+        timedOutResponse -> timedOutResponse.resume(_serviceUnavailable(_TIMED_OUT_MESSAGE)));
+    asyncResponse.setTimeout(config.probeResponseTimeout(), TimeUnit.MILLISECONDS);
+
+    ThreadPoolExecutor probeExecutor = _probeExecutor;
+
+    if (probeExecutor == null) {
+      asyncResponse.resume(_serviceUnavailable(_REJECTED_MESSAGE));
+      return;
+    }
+
+    try {
+      probeExecutor.execute(() -> {
+        try {
+          asyncResponse.resume(toResponse.apply(_getResponse(probeType)));
+        } catch (Exception e) {
+          asyncResponse.resume(e);
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      asyncResponse.resume(_serviceUnavailable(_REJECTED_MESSAGE));
+    }
+  }
+
+  /**
+   * @param message reason why the request is rejected
+   * @return a 429 Too Many Requests HTTP response with a DOWN response entity
+   */
+  private static Response _tooManyRequests(String message) {
+
+    HealthCheckResponse response = HealthCheckResponse.builder()
+                                                      .status(HealthCheckStatus.DOWN)
+                                                      .message(message)
+                                                      .build();
+
+    return Response.status(Response.Status.TOO_MANY_REQUESTS)
+                   .entity(response.toJsonBytes())
+                   .type(MediaType.APPLICATION_JSON_TYPE)
+                   .header(HttpHeaders.RETRY_AFTER, 1)
+                   .build();
+  }
+
+  private static String _getRemoteAddress(HttpServletRequest httpServletRequest) {
+
+    return httpServletRequest != null ? httpServletRequest.getRemoteAddr() : null;
+  }
+
+  /**
+   * @param message reason why the probe could not be evaluated
+   * @return a 503 Service Unavailable HTTP response with a DOWN response entity
+   */
+  private static Response _serviceUnavailable(String message) {
+
+    HealthCheckResponse response = HealthCheckResponse.builder()
+                                                      .status(HealthCheckStatus.DOWN)
+                                                      .message(message)
+                                                      .build();
+
+    return Response.status(Response.Status.SERVICE_UNAVAILABLE)
+                   .entity(response.toJsonBytes())
+                   .type(MediaType.APPLICATION_JSON_TYPE)
+                   .build();
+  }
+
+  /**
+   * Get the response for a probe type, either from the latest scheduled evaluation or by evaluating
+   * the probe right away. Concurrent requests for the same probe type share a single evaluation,
+   * and the probe is not evaluated again within the minimum evaluation interval.
+   *
+   * @param probeType type of probe we're looking for (e.g. readiness or liveness)
+   * @return a response entity to be sent in the HTTP response body as JSON
+   * @see HealthCheckConfiguration#scheduledEvaluation
+   * @see HealthCheckConfiguration#minEvaluationInterval
+   */
+  private HealthCheckResponse _getResponse(HealthCheckProbeType probeType) {
+
+    HealthCheckConfiguration config = _config;
+
+    if (config.scheduledEvaluation()) {
+      return _probeResultCache.getResponse(probeType, config.maxStaleness());
+    }
+
+    ProbeResult result = _probeResultCache.get(probeType);
+
+    if (result != null
+        && System.currentTimeMillis() - result.getTimestamp() < config.minEvaluationInterval()) {
+      return result.getResponse();
+    }
+
+    ProbePlan probePlan = _probePlans[probeType.ordinal()];
+
+    return _probeCoalescer.evaluate(probeType, () -> _evaluate(probePlan));
+  }
+
+  /**
+   * Evaluate a probe according to its plan.
+   *
+   * @param probePlan plan of the probe, compiled from the configuration
+   * @return a response entity to be sent in the HTTP response body as JSON
+   * @see ProbePlan
+   */
+  private HealthCheckResponse _evaluate(ProbePlan probePlan) {
+
+    HealthCheckProbeType probeType = probePlan.getProbeType();
+    long start = System.nanoTime();
+    HealthCheckResponse response = probePlan.evaluate();
+
+    long duration = System.nanoTime() - start;
+    _probeMetrics.recordProbe(probeType, response.getStatus(), duration);
+    _probeHistory.record(probeType, response.getStatus(), duration, response.getIssues());
+    _issueVersionHistory.record(probeType, response.getIssues());
+    _probeResultCache.put(probeType, response);
+
+    return response;
+  }
+
+  /**
+   * Compile the plan of a probe from the configuration: the checks enabled for the probe, in the
+   * configured order. Enabled checks missing from the configured order run last, in their default
+   * order.
+   *
+   * @param probeType type of probe we're looking for (e.g. readiness or liveness)
+   * @param config    configuration of the probes
+   * @return the plan of the probe
+   * @see HealthCheckConfiguration#checkOrderForReadiness
+   * @see HealthCheckConfiguration#checkOrderForLiveness
+   */
+  private ProbePlan _compile(HealthCheckProbeType probeType, HealthCheckConfiguration config) {
+
+    boolean readiness = HealthCheckProbeType.READINESS.equals(probeType);
+    Map<String, ProbeStage> stages = new LinkedHashMap<>();
+
+    if (readiness && config.verifySaturationForReadiness()) {
+      _addStage(stages, ProbeMetrics.CHECK_SATURATION, _saturationHealthCheck::verify);
+    }
+    if (!readiness && config.verifyJvmForLiveness()) {
+      _addStage(stages, ProbeMetrics.CHECK_JVM, _jvmHealthCheck::verify);
+    }
 
     Set<String> bundleSymbolicNames =
-        Arrays.stream(requiredBundleSymbolicNames)
-              .filter(symbolicName -> !symbolicName.trim().isEmpty())
+        Arrays.stream(readiness ? config.bundleSymbolicNamesForReadiness()
+                                : config.bundleSymbolicNamesForLiveness())
+              .map(String::trim)
+              .filter(symbolicName -> !symbolicName.isEmpty())
               .collect(Collectors.toSet());
+    boolean scoped = readiness ? config.scopedBundlesVerificationForReadiness()
+                               : config.scopedBundlesVerificationForLiveness();
 
     if (!bundleSymbolicNames.isEmpty()) {
-      HealthCheckResponse requiredBundlesResponse = _bundlesHealthCheck
-          .verifyBundles(probeType, bundleSymbolicNames);
-      if (HealthCheckStatus.DOWN.equals(requiredBundlesResponse.getStatus())) {
-        return Response.serverError()
-                       .entity(requiredBundlesResponse.toJson())
-                       .build();
+      _addStage(
+          stages, ProbeMetrics.CHECK_REQUIRED_BUNDLES,
+          () -> _bundlesHealthCheck.verifyBundles(probeType, bundleSymbolicNames, scoped));
+    }
+    if (readiness && config.verifyBaselineForReadiness()) {
+      _addStage(stages, ProbeMetrics.CHECK_BASELINE, _baselineHealthCheck::verify);
+    }
+    if (readiness ? config.verifyBundlesStatesForReadiness()
+                  : config.verifyBundlesStatesForLiveness()) {
+      _addStage(stages, ProbeMetrics.CHECK_BUNDLE_STATES, _bundlesHealthCheck::verify);
+    }
+
+    _addStage(stages, ProbeMetrics.CHECK_COMPONENTS, _componentsHealthCheck::verify);
+
+    if (readiness ? config.verifyScrComponentsForReadiness()
+                  : config.verifyScrComponentsForLiveness()) {
+      _addStage(stages, ProbeMetrics.CHECK_SCR_COMPONENTS, _scrComponentsHealthCheck::verify);
+    }
+
+    List<ProbeStage> orderedStages = new ArrayList<>(stages.size());
+
+    for (String check : readiness ? config.checkOrderForReadiness()
+                                  : config.checkOrderForLiveness()) {
+      String name = check.trim();
+      ProbeStage stage = stages.remove(name);
+      if (stage != null) {
+        orderedStages.add(stage);
+      } else if (!name.isEmpty() && !_CHECKS.contains(name)) {
+        _log.warn("Unknown check [" + name + "] in the order of the "
+                      + probeType.name().toLowerCase() + " probe");
       }
     }
-    return _verifyBundlesStates(isVerificationRequired);
+    orderedStages.addAll(stages.values());
+
+    return new ProbePlan(
+        probeType, orderedStages,
+        readiness ? config.fullReportForReadiness() : config.fullReportForLiveness(),
+        _stageExecutor, _probeMetrics, _issueLogger);
+  }
+
+  private static void _addStage(
+      Map<String, ProbeStage> stages, String name, Supplier<HealthCheckResponse> check) {
+
+    stages.put(name, new ProbeStage(name, check));
   }
 
   /**
-   * Verify every bundle state, if checked in the configuration.
+   * Build the HTTP response of a probe, reusing the previous encoding if the result did not change.
+   * An UP response matching the entity tag sent by the client is answered with 304 Not Modified.
    *
-   * @param hasToVerifyBundlesStates true if bundle states has to be verified
+   * @param probeType           type of probe we're looking for (e.g. readiness or liveness)
+   * @param healthCheckResponse response entity of the probe
+   * @param request             HTTP request, used to evaluate If-None-Match
    * @return HTTP response corresponding to the result
-   * @see HealthCheckResponse
-   * @see HealthCheckConfiguration
    */
-  private Response _verifyBundlesStates(boolean hasToVerifyBundlesStates) {
+  private Response _toResponse(
+      HealthCheckProbeType probeType, HealthCheckResponse healthCheckResponse, Request request) {
 
-    if (hasToVerifyBundlesStates) {
-      final HealthCheckResponse bundlesResponse = _bundlesHealthCheck.verify();
+    EncodedResponse encodedResponse =
+        _encodedResponseCache.encode(probeType, healthCheckResponse);
 
-      if (HealthCheckStatus.DOWN.equals(bundlesResponse.getStatus())) {
-        return Response.serverError()
-                       .entity(bundlesResponse.toJson())
-                       .build();
-      }
+    // The cached encoding may come from an equal response of a previous generation
+    long generation = healthCheckResponse.getGeneration();
+
+    if (HealthCheckStatus.DOWN.equals(healthCheckResponse.getStatus())) {
+      return _withGeneration(
+          Response.serverError()
+                  .entity(encodedResponse.getBody())
+                  .type(MediaType.APPLICATION_JSON_TYPE)
+                  .tag(encodedResponse.getEntityTag()),
+          generation);
+    }
+
+    Response.ResponseBuilder notModified =
+        request == null ? null : request.evaluatePreconditions(encodedResponse.getEntityTag());
+
+    if (notModified != null) {
+      return _withGeneration(notModified, generation);
     }
 
-    return _verifyComponents();
+    return _withGeneration(
+        Response.ok(encodedResponse.getBody(), MediaType.APPLICATION_JSON_TYPE)
+                .tag(encodedResponse.getEntityTag()),
+        generation);
   }
 
   /**
-   * Verify if unregistered components are present.
-   *
-   * @return HTTP response corresponding to the result
-   * @see HealthCheckResponse
-   * @see HealthCheckConfiguration
-   * @see ComponentsHealthCheck#verify
+   * @param responseBuilder HTTP response being built
+   * @param generation      generation of the dependency graph snapshot the probe response was
+   *                        computed from, 0 if it does not depend on it
+   * @return the HTTP response, with the generation header if the probe used the snapshot
    */
-  private Response _verifyComponents() {
+  private static Response _withGeneration(
+      Response.ResponseBuilder responseBuilder, long generation) {
 
-    final HealthCheckResponse componentsResponse = _componentsHealthCheck.verify();
+    if (generation > 0) {
+      responseBuilder.header(GENERATION_HEADER, generation);
+    }
 
-    if (HealthCheckStatus.DOWN.equals(componentsResponse.getStatus())) {
-      return Response.serverError()
-                     .entity(componentsResponse.toJson())
-                     .build();
+    return responseBuilder.build();
+  }
+
+  /**
+   * Evaluate a probe in the background and keep its result to be served by the endpoints.
+   *
+   * @param probeType type of probe we're looking for (e.g. readiness or liveness)
+   */
+  private void _evaluateScheduled(HealthCheckProbeType probeType) {
+
+    try {
+      ProbePlan probePlan = _probePlans[probeType.ordinal()];
+      _probeCoalescer.evaluate(probeType, () -> _evaluate(probePlan));
+    } catch (Exception e) {
+      _log.error("Unable to evaluate the " + probeType.name().toLowerCase() + " probe", e);
     }
-    return Response.ok(componentsResponse.toJson()).build();
   }
 
+  /**
+   * Evaluate the probes and push their results to the subscribers of the health watch stream, if
+   * there are any. In scheduled mode, the latest scheduled evaluation is pushed instead.
+   */
+  private void _watch() {
+
+    try {
+      if (!_healthWatchBroadcaster.hasSubscribers()) {
+        return;
+      }
+
+      for (HealthCheckProbeType probeType : _SCHEDULED_PROBE_TYPES) {
+        _healthWatchBroadcaster.publish(probeType, _getResponse(probeType));
+      }
+
+      _healthWatchBroadcaster.heartbeat(
+          TimeUnit.MILLISECONDS.toNanos(_config.watchHeartbeatInterval()));
+    } catch (Exception e) {
+      _log.error("Unable to publish the probe results to the health watch stream", e);
+    }
+  }
 
   public Set<Object> getSingletons() {
 
@@ -146,19 +551,185 @@ public class HealthCheck
 
   @Activate
   @Modified
-  public void activate(Map<String, String> properties) {
+  public synchronized void activate(Map<String, String> properties) {
 
     _config =
         ConfigurableUtil.createConfigurable(HealthCheckConfiguration.class, properties);
 
+    _stopScheduler();
+
+    _watchScheduler = Executors.newSingleThreadScheduledExecutor(
+        new HealthCheckThreadFactory("Health Check Watch"));
+    _watchScheduler.scheduleWithFixedDelay(
+        this::_watch, 0, Math.max(1, _config.watchInterval()), TimeUnit.MILLISECONDS);
+
+    int probeThreads = Math.max(1, _config.probeThreads());
+    ThreadPoolExecutor probeExecutor = new ThreadPoolExecutor(
+        probeThreads, probeThreads, 60, TimeUnit.SECONDS,
+        new ArrayBlockingQueue<>(Math.max(1, _config.probeQueueCapacity())),
+        new HealthCheckThreadFactory("Health Check Probe"));
+    probeExecutor.allowCoreThreadTimeOut(true);
+
+    _stopProbeExecutor();
+    _probeExecutor = probeExecutor;
+
+    ThreadPoolExecutor stageExecutor = new ThreadPoolExecutor(
+        _CHECKS.size(), _CHECKS.size(), 60, TimeUnit.SECONDS,
+        new ArrayBlockingQueue<>(_STAGE_EXECUTOR_QUEUE_CAPACITY),
+        new HealthCheckThreadFactory("Health Check Stage"));
+    stageExecutor.allowCoreThreadTimeOut(true);
+
+    if (_stageExecutor != null) {
+      _stageExecutor.shutdown();
+    }
+    _stageExecutor = stageExecutor;
+
+    ProbePlan[] probePlans = new ProbePlan[HealthCheckProbeType.values().length];
+    for (HealthCheckProbeType probeType : _SCHEDULED_PROBE_TYPES) {
+      probePlans[probeType.ordinal()] = _compile(probeType, _config);
+    }
+    _probePlans = probePlans;
+
+    if (_config.scheduledEvaluation()) {
+      long interval = Math.max(1, _config.scheduledEvaluationInterval());
+      _scheduler = Executors.newScheduledThreadPool(
+          _SCHEDULED_PROBE_TYPES.length, new HealthCheckThreadFactory("Health Check Scheduler"));
+
+      for (HealthCheckProbeType probeType : _SCHEDULED_PROBE_TYPES) {
+        _scheduler.scheduleWithFixedDelay(
+            () -> _evaluateScheduled(probeType), 0, interval, TimeUnit.MILLISECONDS);
+      }
+    }
+  }
+
+  @Deactivate
+  public synchronized void deactivate() {
+
+    _stopScheduler();
+    _stopProbeExecutor();
+    _stageExecutor.shutdown();
+    _healthWatchBroadcaster.close();
+    _issueVersionHistory.clear();
+    _probeResultCache.clear();
+    _probeRateLimiter.clear();
+    _encodedResponseCache.clear();
   }
 
+  private void _stopScheduler() {
+
+    if (_scheduler != null) {
+      _scheduler.shutdownNow();
+      _scheduler = null;
+    }
+    if (_watchScheduler != null) {
+      _watchScheduler.shutdownNow();
+      _watchScheduler = null;
+    }
+  }
+
+  /**
+   * Probe types evaluated by the checks, the startup probe being answered by the startup tracker.
+   */
+  private static final HealthCheckProbeType[] _SCHEDULED_PROBE_TYPES = {
+      HealthCheckProbeType.READINESS, HealthCheckProbeType.LIVENESS
+  };
+
+  /**
+   * Let the evaluations in progress end and answer their requests, but accept no new ones.
+   */
+  private void _stopProbeExecutor() {
+
+    if (_probeExecutor != null) {
+      _probeExecutor.shutdown();
+      _probeExecutor = null;
+    }
+  }
+
+  private static final int _ISSUE_VERSION_HISTORY_CAPACITY = 64;
+
+  private static final int _PROBE_HISTORY_CAPACITY = 1024;
+
+  /**
+   * Names of the checks which can be ordered in the configuration.
+   */
+  private static final List<String> _CHECKS = Arrays.asList(
+      ProbeMetrics.CHECK_SATURATION, ProbeMetrics.CHECK_JVM, ProbeMetrics.CHECK_REQUIRED_BUNDLES,
+      ProbeMetrics.CHECK_BASELINE, ProbeMetrics.CHECK_BUNDLE_STATES, ProbeMetrics.CHECK_COMPONENTS,
+      ProbeMetrics.CHECK_SCR_COMPONENTS);
+
+  private static final int _STAGE_EXECUTOR_QUEUE_CAPACITY = 64;
+
+  /**
+   * Header holding the generation of the dependency graph snapshot a probe response was computed
+   * from.
+   */
+  public static final String GENERATION_HEADER = "X-Health-Check-Generation";
+
+  private static final String _TIMED_OUT_MESSAGE = "Probe timed out";
+
+  private static final String _REJECTED_MESSAGE = "Probe rejected, too many probe requests";
+
+  private static final String _RATE_LIMITED_MESSAGE =
+      "Probe rate limit exceeded and no previous result";
+
+  private static final String _RATE_LIMITED_WATCH_MESSAGE = "Probe rate limit exceeded";
+
+  private static final String _TOO_MANY_WATCHERS_MESSAGE = "Too many clients watch the probes";
+
   private volatile HealthCheckConfiguration _config;
 
+  private ScheduledExecutorService _scheduler;
+
+  private ScheduledExecutorService _watchScheduler;
+
+  private volatile ThreadPoolExecutor _probeExecutor;
+
+  private ThreadPoolExecutor _stageExecutor;
+
+  private volatile ProbePlan[] _probePlans;
+
+  private final ProbeResultCache _probeResultCache = new ProbeResultCache();
+
+  private final ProbeCoalescer _probeCoalescer = new ProbeCoalescer();
+
+  private final ProbeRateLimiter _probeRateLimiter = new ProbeRateLimiter();
+
+  private final EncodedResponseCache _encodedResponseCache = new EncodedResponseCache();
+
+  private final HealthWatchBroadcaster _healthWatchBroadcaster = new HealthWatchBroadcaster();
+
+  private final IssueVersionHistory _issueVersionHistory =
+      new IssueVersionHistory(_ISSUE_VERSION_HISTORY_CAPACITY);
+
+  private final ProbeHistory _probeHistory = new ProbeHistory(_PROBE_HISTORY_CAPACITY);
+
   @Reference
   private ComponentsHealthCheck _componentsHealthCheck;
 
   @Reference
   private BundlesHealthCheck _bundlesHealthCheck;
 
+  @Reference
+  private ScrComponentsHealthCheck _scrComponentsHealthCheck;
+
+  @Reference
+  private StartupTracker _startupTracker;
+
+  @Reference
+  private JvmHealthCheck _jvmHealthCheck;
+
+  @Reference
+  private SaturationHealthCheck _saturationHealthCheck;
+
+  @Reference
+  private BaselineHealthCheck _baselineHealthCheck;
+
+  @Reference
+  private ProbeMetrics _probeMetrics;
+
+  @Reference
+  private IssueLogger _issueLogger;
+
+  private static final Logger _log = LoggerFactory.getLogger(HealthCheck.class);
+
 }
@@ -0,0 +1,93 @@
+package com.github.lgdd.liferay.health;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Reference;
+
+/**
+ * Gogo shell commands returning the cached state of the health checks ({@code health:status}), or
+ * evaluating the probes right away first ({@code health:refresh}). Both read the same state as
+ * {@link HealthCheckMXBean}.
+ */
+@Component(
+    immediate = true,
+    property = {
+        "osgi.command.function=refresh",
+        "osgi.command.function=status",
+        "osgi.command.scope=health"
+    },
+    service = HealthCheckCommand.class
+)
+public class HealthCheckCommand {
+
+  /**
+   * Describe the latest result of each probe and the last run of each check, without evaluating
+   * anything. Gogo prints the returned description.
+   *
+   * @return the description of the cached state of the health checks
+   */
+  public String status() {
+
+    StringBuilder sb = new StringBuilder();
+
+    _appendProbe(
+        sb, "readiness", _healthCheckMXBean.getReadinessStatus(),
+        _healthCheckMXBean.getReadinessMessage(), _healthCheckMXBean.getReadinessTimestamp(),
+        _healthCheckMXBean.getReadinessIssues());
+    _appendProbe(
+        sb, "liveness", _healthCheckMXBean.getLivenessStatus(),
+        _healthCheckMXBean.getLivenessMessage(), _healthCheckMXBean.getLivenessTimestamp(),
+        _healthCheckMXBean.getLivenessIssues());
+    sb.append("startup: ").append(_healthCheckMXBean.getStartupStatus());
+    sb.append(" - ").append(_healthCheckMXBean.getStartupMessage()).append('\n');
+
+    sb.append("dependency graph generation: ");
+    sb.append(_healthCheckMXBean.getDependencyGraphGeneration()).append('\n');
+
+    Map<String, Long> durations = _healthCheckMXBean.getCheckDurations();
+    Map<String, String> statuses = _healthCheckMXBean.getCheckStatuses();
+
+    if (!statuses.isEmpty()) {
+      sb.append("checks:\n");
+      for (Map.Entry<String, String> entry : statuses.entrySet()) {
+        sb.append("  ").append(entry.getKey()).append(": ").append(entry.getValue());
+        sb.append(" in ").append(durations.getOrDefault(entry.getKey(), 0L)).append(" us\n");
+      }
+    }
+
+    return sb.toString();
+  }
+
+  /**
+   * Evaluate the readiness and liveness probes, then describe their results like
+   * {@link #status()}.
+   *
+   * @return the description of the state of the health checks after the evaluation
+   */
+  public String refresh() {
+
+    _healthCheckMXBean.refresh();
+
+    return status();
+  }
+
+  private static void _appendProbe(
+      StringBuilder sb, String probe, String status, String message, long timestamp,
+      List<String> issues) {
+
+    sb.append(probe).append(": ").append(status).append(" - ").append(message);
+    if (timestamp > 0) {
+      sb.append(" (").append(new Date(timestamp)).append(')');
+    }
+    sb.append('\n');
+
+    for (String issue : issues) {
+      sb.append("  ").append(issue).append('\n');
+    }
+  }
+
+  @Reference
+  private HealthCheckMXBean _healthCheckMXBean;
+}
@@ -31,6 +31,70 @@ public interface HealthCheckConfiguration {
   )
   String[] bundleSymbolicNamesForLiveness();
 
+  @Meta.AD(
+      deflt = "false",
+      required = false,
+      name = "com.github.lgdd.liferay.health.liveness-config-scoped-bundles-verification",
+      description = "com.github.lgdd.liferay.health.liveness-config-scoped-bundles-verification-desc"
+  )
+  boolean scopedBundlesVerificationForLiveness();
+
+  @Meta.AD(
+      deflt = "false",
+      required = false,
+      name = "com.github.lgdd.liferay.health.liveness-config-verify-scr-components",
+      description = "com.github.lgdd.liferay.health.liveness-config-verify-scr-components-desc"
+  )
+  boolean verifyScrComponentsForLiveness();
+
+  @Meta.AD(
+      deflt = "60000",
+      required = false,
+      name = "com.github.lgdd.liferay.health.config-scr-components-full-refresh-interval",
+      description = "com.github.lgdd.liferay.health.config-scr-components-full-refresh-interval-desc"
+  )
+  long scrComponentsFullRefreshInterval();
+
+  @Meta.AD(
+      deflt = "false",
+      required = false,
+      name = "com.github.lgdd.liferay.health.liveness-config-verify-jvm",
+      description = "com.github.lgdd.liferay.health.liveness-config-verify-jvm-desc"
+  )
+  boolean verifyJvmForLiveness();
+
+  @Meta.AD(
+      deflt = "5000",
+      required = false,
+      name = "com.github.lgdd.liferay.health.liveness-config-jvm-sampling-interval",
+      description = "com.github.lgdd.liferay.health.liveness-config-jvm-sampling-interval-desc"
+  )
+  long jvmSamplingInterval();
+
+  @Meta.AD(
+      deflt = "60000",
+      required = false,
+      name = "com.github.lgdd.liferay.health.liveness-config-gc-time-window",
+      description = "com.github.lgdd.liferay.health.liveness-config-gc-time-window-desc"
+  )
+  long gcTimeWindow();
+
+  @Meta.AD(
+      deflt = "50",
+      required = false,
+      name = "com.github.lgdd.liferay.health.liveness-config-max-gc-time-percent",
+      description = "com.github.lgdd.liferay.health.liveness-config-max-gc-time-percent-desc"
+  )
+  int maxGcTimePercent();
+
+  @Meta.AD(
+      deflt = "95",
+      required = false,
+      name = "com.github.lgdd.liferay.health.liveness-config-max-old-gen-occupancy-percent",
+      description = "com.github.lgdd.liferay.health.liveness-config-max-old-gen-occupancy-percent-desc"
+  )
+  int maxOldGenOccupancyPercent();
+
   @Meta.AD(
       deflt = "true",
       required = false,
@@ -47,6 +111,271 @@ public interface HealthCheckConfiguration {
   )
   String[] bundleSymbolicNamesForReadiness();
 
+  @Meta.AD(
+      deflt = "false",
+      required = false,
+      name = "com.github.lgdd.liferay.health.readiness-config-scoped-bundles-verification",
+      description = "com.github.lgdd.liferay.health.readiness-config-scoped-bundles-verification-desc"
+  )
+  boolean scopedBundlesVerificationForReadiness();
+
+  @Meta.AD(
+      deflt = "false",
+      required = false,
+      name = "com.github.lgdd.liferay.health.readiness-config-verify-scr-components",
+      description = "com.github.lgdd.liferay.health.readiness-config-verify-scr-components-desc"
+  )
+  boolean verifyScrComponentsForReadiness();
+
+  @Meta.AD(
+      deflt = "false",
+      required = false,
+      name = "com.github.lgdd.liferay.health.readiness-config-verify-saturation",
+      description = "com.github.lgdd.liferay.health.readiness-config-verify-saturation-desc"
+  )
+  boolean verifySaturationForReadiness();
+
+  @Meta.AD(
+      deflt = "2000",
+      required = false,
+      name = "com.github.lgdd.liferay.health.readiness-config-saturation-sampling-interval",
+      description =
+          "com.github.lgdd.liferay.health.readiness-config-saturation-sampling-interval-desc"
+  )
+  long saturationSamplingInterval();
+
+  @Meta.AD(
+      deflt = "90",
+      required = false,
+      name = "com.github.lgdd.liferay.health.readiness-config-saturation-high-watermark",
+      description = "com.github.lgdd.liferay.health.readiness-config-saturation-high-watermark-desc"
+  )
+  int saturationHighWatermark();
+
+  @Meta.AD(
+      deflt = "70",
+      required = false,
+      name = "com.github.lgdd.liferay.health.readiness-config-saturation-low-watermark",
+      description = "com.github.lgdd.liferay.health.readiness-config-saturation-low-watermark-desc"
+  )
+  int saturationLowWatermark();
+
+  @Meta.AD(
+      deflt = "false",
+      required = false,
+      name = "com.github.lgdd.liferay.health.readiness-config-verify-baseline",
+      description = "com.github.lgdd.liferay.health.readiness-config-verify-baseline-desc"
+  )
+  boolean verifyBaselineForReadiness();
+
+  @Meta.AD(
+      deflt = "false",
+      required = false,
+      name = "com.github.lgdd.liferay.health.readiness-config-learn-baseline",
+      description = "com.github.lgdd.liferay.health.readiness-config-learn-baseline-desc"
+  )
+  boolean learnBaseline();
+
+  @Meta.AD(
+      deflt = "30000",
+      required = false,
+      name = "com.github.lgdd.liferay.health.readiness-config-baseline-learn-quiet-period",
+      description = "com.github.lgdd.liferay.health.readiness-config-baseline-learn-quiet-period-desc"
+  )
+  long baselineLearnQuietPeriod();
+
+  @Meta.AD(
+      deflt = "data/health-check/bundle-baseline.txt",
+      required = false,
+      name = "com.github.lgdd.liferay.health.readiness-config-baseline-file",
+      description = "com.github.lgdd.liferay.health.readiness-config-baseline-file-desc"
+  )
+  String baselineFile();
+
+  @Meta.AD(
+      deflt = "5000",
+      required = false,
+      name = "com.github.lgdd.liferay.health.config-custom-health-check-timeout",
+      description = "com.github.lgdd.liferay.health.config-custom-health-check-timeout-desc"
+  )
+  long customHealthCheckTimeout();
+
+  @Meta.AD(
+      deflt = "10000",
+      required = false,
+      name = "com.github.lgdd.liferay.health.config-probe-timeout",
+      description = "com.github.lgdd.liferay.health.config-probe-timeout-desc"
+  )
+  long probeTimeout();
+
+  @Meta.AD(
+      deflt = "4",
+      required = false,
+      name = "com.github.lgdd.liferay.health.config-custom-health-check-threads",
+      description = "com.github.lgdd.liferay.health.config-custom-health-check-threads-desc"
+  )
+  int customHealthCheckThreads();
+
+  @Meta.AD(
+      deflt = "2",
+      required = false,
+      name = "com.github.lgdd.liferay.health.config-probe-threads",
+      description = "com.github.lgdd.liferay.health.config-probe-threads-desc"
+  )
+  int probeThreads();
+
+  @Meta.AD(
+      deflt = "16",
+      required = false,
+      name = "com.github.lgdd.liferay.health.config-probe-queue-capacity",
+      description = "com.github.lgdd.liferay.health.config-probe-queue-capacity-desc"
+  )
+  int probeQueueCapacity();
+
+  @Meta.AD(
+      deflt = "15000",
+      required = false,
+      name = "com.github.lgdd.liferay.health.config-probe-response-timeout",
+      description = "com.github.lgdd.liferay.health.config-probe-response-timeout-desc"
+  )
+  long probeResponseTimeout();
+
+  @Meta.AD(
+      deflt = "20",
+      required = false,
+      name = "com.github.lgdd.liferay.health.config-probe-rate-limit",
+      description = "com.github.lgdd.liferay.health.config-probe-rate-limit-desc"
+  )
+  int probeRateLimit();
+
+  @Meta.AD(
+      deflt = "5",
+      required = false,
+      name = "com.github.lgdd.liferay.health.config-probe-rate-limit-per-client",
+      description = "com.github.lgdd.liferay.health.config-probe-rate-limit-per-client-desc"
+  )
+  int probeRateLimitPerClient();
+
+  @Meta.AD(
+      deflt = "1000",
+      required = false,
+      name = "com.github.lgdd.liferay.health.config-min-evaluation-interval",
+      description = "com.github.lgdd.liferay.health.config-min-evaluation-interval-desc"
+  )
+  long minEvaluationInterval();
+
+  @Meta.AD(
+      deflt = "false",
+      required = false,
+      name = "com.github.lgdd.liferay.health.config-scheduled-evaluation",
+      description = "com.github.lgdd.liferay.health.config-scheduled-evaluation-desc"
+  )
+  boolean scheduledEvaluation();
+
+  @Meta.AD(
+      deflt = "5000",
+      required = false,
+      name = "com.github.lgdd.liferay.health.config-scheduled-evaluation-interval",
+      description = "com.github.lgdd.liferay.health.config-scheduled-evaluation-interval-desc"
+  )
+  long scheduledEvaluationInterval();
+
+  @Meta.AD(
+      deflt = "30000",
+      required = false,
+      name = "com.github.lgdd.liferay.health.config-max-staleness",
+      description = "com.github.lgdd.liferay.health.config-max-staleness-desc"
+  )
+  long maxStaleness();
+
+  @Meta.AD(
+      deflt = "saturation|required_bundles|baseline|bundle_states|components|scr_components",
+      required = false,
+      name = "com.github.lgdd.liferay.health.readiness-config-check-order",
+      description = "com.github.lgdd.liferay.health.readiness-config-check-order-desc"
+  )
+  String[] checkOrderForReadiness();
+
+  @Meta.AD(
+      deflt = "false",
+      required = false,
+      name = "com.github.lgdd.liferay.health.readiness-config-full-report",
+      description = "com.github.lgdd.liferay.health.readiness-config-full-report-desc"
+  )
+  boolean fullReportForReadiness();
+
+  @Meta.AD(
+      deflt = "jvm|required_bundles|bundle_states|components|scr_components",
+      required = false,
+      name = "com.github.lgdd.liferay.health.liveness-config-check-order",
+      description = "com.github.lgdd.liferay.health.liveness-config-check-order-desc"
+  )
+  String[] checkOrderForLiveness();
+
+  @Meta.AD(
+      deflt = "false",
+      required = false,
+      name = "com.github.lgdd.liferay.health.liveness-config-full-report",
+      description = "com.github.lgdd.liferay.health.liveness-config-full-report-desc"
+  )
+  boolean fullReportForLiveness();
+
+  @Meta.AD(
+      deflt = "5000",
+      required = false,
+      name = "com.github.lgdd.liferay.health.config-watch-interval",
+      description = "com.github.lgdd.liferay.health.config-watch-interval-desc"
+  )
+  long watchInterval();
+
+  @Meta.AD(
+      deflt = "15000",
+      required = false,
+      name = "com.github.lgdd.liferay.health.config-watch-heartbeat-interval",
+      description = "com.github.lgdd.liferay.health.config-watch-heartbeat-interval-desc"
+  )
+  long watchHeartbeatInterval();
+
+  @Meta.AD(
+      deflt = "16",
+      required = false,
+      name = "com.github.lgdd.liferay.health.config-watch-buffer-capacity",
+      description = "com.github.lgdd.liferay.health.config-watch-buffer-capacity-desc"
+  )
+  int watchBufferCapacity();
+
+  @Meta.AD(
+      deflt = "32",
+      required = false,
+      name = "com.github.lgdd.liferay.health.config-watch-max-subscribers",
+      description = "com.github.lgdd.liferay.health.config-watch-max-subscribers-desc"
+  )
+  int watchMaxSubscribers();
+
+  @Meta.AD(
+      deflt = "60",
+      required = false,
+      name = "com.github.lgdd.liferay.health.config-issue-log-rate-limit",
+      description = "com.github.lgdd.liferay.health.config-issue-log-rate-limit-desc"
+  )
+  int issueLogRateLimit();
+
+  @Meta.AD(
+      deflt = "300000",
+      required = false,
+      name = "com.github.lgdd.liferay.health.config-issue-log-summary-interval",
+      description = "com.github.lgdd.liferay.health.config-issue-log-summary-interval-desc"
+  )
+  long issueLogSummaryInterval();
+
+  @Meta.AD(
+      deflt = "false",
+      required = false,
+      name = "com.github.lgdd.liferay.health.config-flatten-missing-dependencies",
+      description = "com.github.lgdd.liferay.health.config-flatten-missing-dependencies-desc"
+  )
+  boolean flattenMissingDependencies();
+
   String PID = "com.github.lgdd.liferay.health.HealthCheckConfiguration";
 
 }
@@ -0,0 +1,75 @@
+package com.github.lgdd.liferay.health;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Management interface exposing the cached state of the health checks: the latest result of each
+ * probe, the outcome and duration of the last run of each check, and the generation of the last
+ * dependency graph snapshot. Reading an attribute never evaluates a probe nor scans the framework,
+ * only {@link #refresh()} does.
+ *
+ * @see HealthCheckManager
+ */
+public interface HealthCheckMXBean {
+
+  String OBJECT_NAME = "com.github.lgdd.liferay.health:type=HealthCheck";
+
+  /**
+   * @return UP or DOWN according to the latest evaluation of the readiness probe, or UNKNOWN if it
+   * has not been evaluated yet
+   */
+  String getReadinessStatus();
+
+  String getReadinessMessage();
+
+  List<String> getReadinessIssues();
+
+  /**
+   * @return time of the latest evaluation of the readiness probe in milliseconds since the epoch,
+   * or 0 if it has not been evaluated yet
+   */
+  long getReadinessTimestamp();
+
+  /**
+   * @return UP or DOWN according to the latest evaluation of the liveness probe, or UNKNOWN if it
+   * has not been evaluated yet
+   */
+  String getLivenessStatus();
+
+  String getLivenessMessage();
+
+  List<String> getLivenessIssues();
+
+  /**
+   * @return time of the latest evaluation of the liveness probe in milliseconds since the epoch, or
+   * 0 if it has not been evaluated yet
+   */
+  long getLivenessTimestamp();
+
+  String getStartupStatus();
+
+  String getStartupMessage();
+
+  /**
+   * @return generation of the last dependency graph snapshot, or 0 if none was computed yet
+   */
+  long getDependencyGraphGeneration();
+
+  /**
+   * @return outcome of the last run of each check, keyed by probe and check name (e.g.
+   * readiness/bundle_states)
+   */
+  Map<String, String> getCheckStatuses();
+
+  /**
+   * @return duration of the last run of each check in microseconds, keyed by probe and check name
+   */
+  Map<String, Long> getCheckDurations();
+
+  /**
+   * Evaluate the readiness and liveness probes right away.
+   */
+  void refresh();
+
+}
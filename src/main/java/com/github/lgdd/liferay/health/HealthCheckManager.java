@@ -0,0 +1,162 @@
+package com.github.lgdd.liferay.health;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import javax.management.DynamicMBean;
+import javax.management.StandardMBean;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Reference;
+
+/**
+ * Register the {@link HealthCheckMXBean} in the platform MBean server, through the Liferay
+ * whiteboard for dynamic MBeans. Every attribute is read from the state kept by the endpoints: the
+ * latest probe results, the check metrics and the last dependency graph snapshot.
+ */
+@Component(
+    immediate = true,
+    property = {
+        "jmx.objectname=" + HealthCheckMXBean.OBJECT_NAME,
+        "jmx.objectname.cache.key=ObjectName"
+    },
+    service = {DynamicMBean.class, HealthCheckMXBean.class}
+)
+public class HealthCheckManager extends StandardMBean implements HealthCheckMXBean {
+
+  public HealthCheckManager() {
+
+    super(HealthCheckMXBean.class, true);
+  }
+
+  @Override
+  public String getReadinessStatus() {
+
+    return _getStatus(HealthCheckProbeType.READINESS);
+  }
+
+  @Override
+  public String getReadinessMessage() {
+
+    return _getMessage(HealthCheckProbeType.READINESS);
+  }
+
+  @Override
+  public List<String> getReadinessIssues() {
+
+    return _getIssues(HealthCheckProbeType.READINESS);
+  }
+
+  @Override
+  public long getReadinessTimestamp() {
+
+    return _getTimestamp(HealthCheckProbeType.READINESS);
+  }
+
+  @Override
+  public String getLivenessStatus() {
+
+    return _getStatus(HealthCheckProbeType.LIVENESS);
+  }
+
+  @Override
+  public String getLivenessMessage() {
+
+    return _getMessage(HealthCheckProbeType.LIVENESS);
+  }
+
+  @Override
+  public List<String> getLivenessIssues() {
+
+    return _getIssues(HealthCheckProbeType.LIVENESS);
+  }
+
+  @Override
+  public long getLivenessTimestamp() {
+
+    return _getTimestamp(HealthCheckProbeType.LIVENESS);
+  }
+
+  @Override
+  public String getStartupStatus() {
+
+    return _startupTracker.getResponse().getStatus().name();
+  }
+
+  @Override
+  public String getStartupMessage() {
+
+    return _startupTracker.getResponse().getMessage();
+  }
+
+  @Override
+  public long getDependencyGraphGeneration() {
+
+    DependencyGraphSnapshot snapshot = _dependencyGraphTracker.getLastSnapshot();
+
+    return snapshot != null ? snapshot.getGeneration() : 0;
+  }
+
+  @Override
+  public Map<String, String> getCheckStatuses() {
+
+    return _probeMetrics.getLastCheckStatuses();
+  }
+
+  @Override
+  public Map<String, Long> getCheckDurations() {
+
+    return _probeMetrics.getLastCheckDurations();
+  }
+
+  @Override
+  public void refresh() {
+
+    _healthCheck.refresh(HealthCheckProbeType.READINESS);
+    _healthCheck.refresh(HealthCheckProbeType.LIVENESS);
+  }
+
+  private String _getStatus(HealthCheckProbeType probeType) {
+
+    ProbeResult result = _healthCheck.getLastResult(probeType);
+
+    return result != null ? result.getResponse().getStatus().name() : UNKNOWN_STATUS;
+  }
+
+  private String _getMessage(HealthCheckProbeType probeType) {
+
+    ProbeResult result = _healthCheck.getLastResult(probeType);
+
+    return result != null ? result.getResponse().getMessage() : _NOT_EVALUATED_MESSAGE;
+  }
+
+  private List<String> _getIssues(HealthCheckProbeType probeType) {
+
+    ProbeResult result = _healthCheck.getLastResult(probeType);
+    List<String> issues = result != null ? result.getResponse().getIssues() : null;
+
+    return issues != null ? issues : Collections.emptyList();
+  }
+
+  private long _getTimestamp(HealthCheckProbeType probeType) {
+
+    ProbeResult result = _healthCheck.getLastResult(probeType);
+
+    return result != null ? result.getTimestamp() : 0;
+  }
+
+  public static final String UNKNOWN_STATUS = "UNKNOWN";
+
+  private static final String _NOT_EVALUATED_MESSAGE = "Not evaluated yet";
+
+  @Reference
+  private HealthCheck _healthCheck;
+
+  @Reference
+  private StartupTracker _startupTracker;
+
+  @Reference
+  private DependencyGraphTracker _dependencyGraphTracker;
+
+  @Reference
+  private ProbeMetrics _probeMetrics;
+}
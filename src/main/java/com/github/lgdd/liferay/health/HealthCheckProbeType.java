@@ -1,5 +1,5 @@
 package com.github.lgdd.liferay.health;
 
 public enum HealthCheckProbeType {
-  READINESS, LIVENESS
+  READINESS, LIVENESS, STARTUP
 }
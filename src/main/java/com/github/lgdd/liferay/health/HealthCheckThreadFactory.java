@@ -0,0 +1,28 @@
+package com.github.lgdd.liferay.health;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Create daemon threads named after the health check task they run, so they are easy to spot in a
+ * thread dump and never prevent the JVM from shutting down.
+ */
+public class HealthCheckThreadFactory
+    implements ThreadFactory {
+
+  public HealthCheckThreadFactory(String name) {
+
+    _name = name;
+  }
+
+  @Override
+  public Thread newThread(Runnable runnable) {
+
+    Thread thread = new Thread(runnable, _name + "-" + _counter.incrementAndGet());
+    thread.setDaemon(true);
+    return thread;
+  }
+
+  private final String _name;
+  private final AtomicInteger _counter = new AtomicInteger();
+}
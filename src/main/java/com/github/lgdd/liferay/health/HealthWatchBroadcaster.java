@@ -0,0 +1,188 @@
+package com.github.lgdd.liferay.health;
+
+import com.github.lgdd.liferay.health.api.HealthCheckResponse;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.sse.OutboundSseEvent;
+import javax.ws.rs.sse.Sse;
+import javax.ws.rs.sse.SseEventSink;
+
+/**
+ * Push the results of the probes to the subscribers of the health watch stream as Server-Sent
+ * Events. An event is built once per change of status or issues of a probe and sent to every
+ * subscriber, and a heartbeat comment is sent when nothing was sent for a while.
+ * <p>
+ * Each subscriber has a bounded number of events waiting to be written: a subscriber exceeding it
+ * is considered too slow and is disconnected, so the server never buffers events without bound.
+ * The number of subscribers is bounded too.
+ */
+public class HealthWatchBroadcaster {
+
+  /**
+   * Add a subscriber and send it the last event of each probe type, if any.
+   *
+   * @param sseEventSink   sink of the subscriber
+   * @param sse            entry point to build the events
+   * @param bufferCapacity maximum number of events waiting to be written to the subscriber
+   * @param maxSubscribers maximum number of subscribers
+   * @return false if there are already too many subscribers, in which case the sink is left as is
+   */
+  public synchronized boolean subscribe(
+      SseEventSink sseEventSink, Sse sse, int bufferCapacity, int maxSubscribers) {
+
+    _subscribers.removeIf(subscriber -> subscriber.sseEventSink.isClosed());
+
+    if (_subscribers.size() >= maxSubscribers) {
+      return false;
+    }
+
+    _sse = sse;
+
+    Subscriber subscriber = new Subscriber(sseEventSink, Math.max(1, bufferCapacity));
+    _subscribers.add(subscriber);
+
+    for (OutboundSseEvent event : _lastEvents) {
+      if (event != null) {
+        _send(subscriber, event);
+      }
+    }
+
+    return true;
+  }
+
+  public boolean hasSubscribers() {
+
+    return !_subscribers.isEmpty();
+  }
+
+  /**
+   * Send the result of a probe to every subscriber, if its status or its issues changed since the
+   * previous result.
+   *
+   * @param probeType type of probe we're looking for (e.g. readiness or liveness)
+   * @param response  latest result of the probe
+   */
+  public synchronized void publish(HealthCheckProbeType probeType, HealthCheckResponse response) {
+
+    int index = probeType.ordinal();
+    HealthCheckResponse lastResponse = _lastResponses[index];
+
+    if (_sse == null || (lastResponse != null
+        && lastResponse.getStatus() == response.getStatus()
+        && Objects.equals(lastResponse.getIssues(), response.getIssues()))) {
+      return;
+    }
+
+    OutboundSseEvent event = _sse.newEventBuilder()
+                                 .id(String.valueOf(++_eventId))
+                                 .name(probeType.name().toLowerCase())
+                                 .mediaType(MediaType.APPLICATION_JSON_TYPE)
+                                 .data(String.class, response.toJson())
+                                 .build();
+
+    _lastResponses[index] = response;
+    _lastEvents[index] = event;
+
+    _sendAll(event);
+  }
+
+  /**
+   * Send a heartbeat comment to every subscriber if no event was sent for a while, so idle
+   * connections are kept open by proxies and dead ones are detected.
+   *
+   * @param intervalNanos time without any event after which a heartbeat is sent
+   */
+  public synchronized void heartbeat(long intervalNanos) {
+
+    if (_sse == null || System.nanoTime() - _lastSent < intervalNanos) {
+      return;
+    }
+
+    _sendAll(_sse.newEventBuilder().comment("heartbeat").build());
+  }
+
+  /**
+   * Disconnect every subscriber and forget the last results.
+   */
+  public synchronized void close() {
+
+    for (Subscriber subscriber : _subscribers) {
+      _close(subscriber);
+    }
+
+    for (int i = 0; i < _lastEvents.length; i++) {
+      _lastResponses[i] = null;
+      _lastEvents[i] = null;
+    }
+  }
+
+  private void _sendAll(OutboundSseEvent event) {
+
+    for (Subscriber subscriber : _subscribers) {
+      _send(subscriber, event);
+    }
+
+    _lastSent = System.nanoTime();
+  }
+
+  private void _send(Subscriber subscriber, OutboundSseEvent event) {
+
+    if (subscriber.sseEventSink.isClosed()
+        || subscriber.pending.incrementAndGet() > subscriber.bufferCapacity) {
+      _close(subscriber);
+      return;
+    }
+
+    try {
+      subscriber.sseEventSink.send(event).whenComplete((result, throwable) -> {
+        subscriber.pending.decrementAndGet();
+        if (throwable != null) {
+          _close(subscriber);
+        }
+      });
+    } catch (IllegalStateException e) {
+      _close(subscriber);
+    }
+  }
+
+  private void _close(Subscriber subscriber) {
+
+    _subscribers.remove(subscriber);
+
+    try {
+      subscriber.sseEventSink.close();
+    } catch (Exception e) {
+      // The connection is already gone
+    }
+  }
+
+  /**
+   * Sink of a subscriber along with the number of events waiting to be written to it.
+   */
+  private static class Subscriber {
+
+    Subscriber(SseEventSink sseEventSink, int bufferCapacity) {
+
+      this.sseEventSink = sseEventSink;
+      this.bufferCapacity = bufferCapacity;
+    }
+
+    final SseEventSink sseEventSink;
+    final int bufferCapacity;
+    final AtomicInteger pending = new AtomicInteger();
+  }
+
+  private final List<Subscriber> _subscribers = new CopyOnWriteArrayList<>();
+
+  private final HealthCheckResponse[] _lastResponses =
+      new HealthCheckResponse[HealthCheckProbeType.values().length];
+  private final OutboundSseEvent[] _lastEvents =
+      new OutboundSseEvent[HealthCheckProbeType.values().length];
+
+  private Sse _sse;
+  private long _eventId;
+  private long _lastSent = System.nanoTime();
+}
@@ -0,0 +1,192 @@
+package com.github.lgdd.liferay.health;
+
+import com.liferay.portal.configuration.metatype.bnd.util.ConfigurableUtil;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Deactivate;
+import org.osgi.service.component.annotations.Modified;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Log the issues found by the checks only when they change: the issues which appeared and the ones
+ * which disappeared since the previous run of the same check. The number of lines logged per minute
+ * is capped, and a summary of the current issues and of the suppressed lines is logged
+ * periodically, so the logging cost doesn't grow with the number of issues times the probe
+ * frequency.
+ */
+@Component(
+    immediate = true,
+    configurationPid = HealthCheckConfiguration.PID,
+    service = IssueLogger.class
+)
+public class IssueLogger {
+
+  /**
+   * Log the changes since the previous evaluation of the probe. The issues of a check which didn't
+   * run this time, e.g. skipped by a fail-fast probe or removed from the configuration, are
+   * forgotten rather than kept as current, since nothing tells whether they are still there.
+   *
+   * @param probeType     type of probe we're looking for (e.g. readiness or liveness)
+   * @param issuesByCheck issues found by each check which ran, if any, by name of the check
+   */
+  public void log(HealthCheckProbeType probeType, Map<String, List<String>> issuesByCheck) {
+
+    String prefix = probeType.name().toLowerCase() + "/";
+
+    synchronized (this) {
+      Iterator<Map.Entry<String, Set<String>>> iterator = _issues.entrySet().iterator();
+      while (iterator.hasNext()) {
+        Map.Entry<String, Set<String>> entry = iterator.next();
+        String source = entry.getKey();
+        if (source.startsWith(prefix)
+            && !issuesByCheck.containsKey(source.substring(prefix.length()))) {
+          int size = entry.getValue().size();
+          _warn("[" + source + "] Check not run, forgetting " + size
+                    + (size > 1 ? " issues" : " issue"));
+          iterator.remove();
+        }
+      }
+
+      for (Map.Entry<String, List<String>> entry : issuesByCheck.entrySet()) {
+        _log(prefix + entry.getKey(), entry.getValue());
+      }
+    }
+  }
+
+  private void _log(String source, List<String> issues) {
+
+    Set<String> previousIssues = _issues.getOrDefault(source, Collections.emptySet());
+    Set<String> currentIssues = new LinkedHashSet<>(issues);
+
+    if (previousIssues.equals(currentIssues)) {
+      return;
+    }
+
+    for (String issue : currentIssues) {
+      if (!previousIssues.contains(issue)) {
+        _warn("[" + source + "] New issue: " + issue);
+      }
+    }
+    for (String issue : previousIssues) {
+      if (!currentIssues.contains(issue)) {
+        _warn("[" + source + "] Resolved issue: " + issue);
+      }
+    }
+
+    if (currentIssues.isEmpty()) {
+      _issues.remove(source);
+    } else {
+      _issues.put(source, currentIssues);
+    }
+  }
+
+  private void _warn(String line) {
+
+    long now = System.nanoTime();
+    double ratePerNano = _config.issueLogRateLimit() / (double) TimeUnit.MINUTES.toNanos(1);
+
+    _tokens = Math.min(_config.issueLogRateLimit(), _tokens + (now - _lastRefill) * ratePerNano);
+    _lastRefill = now;
+
+    if (_tokens < 1) {
+      _suppressedLines++;
+      return;
+    }
+
+    _tokens--;
+    _log.warn(line);
+  }
+
+  /**
+   * Run by the scheduler rather than by the probes, so the summary is still logged when the probes
+   * stop being called.
+   */
+  private synchronized void _logSummary() {
+
+    if (_issues.isEmpty() && _suppressedLines == 0) {
+      return;
+    }
+
+    StringBuilder sb = new StringBuilder("Health check summary:");
+    for (Map.Entry<String, Set<String>> entry : _issues.entrySet()) {
+      sb.append(' ').append(entry.getKey()).append('=').append(entry.getValue().size());
+      sb.append(entry.getValue().size() > 1 ? " issues" : " issue").append(',');
+    }
+    sb.append(' ').append(_suppressedLines).append(" log line(s) suppressed by the rate limit");
+
+    _suppressedLines = 0;
+    _log.warn(sb.toString());
+  }
+
+  /**
+   * @return the current issues, by probe and check
+   */
+  synchronized Map<String, Set<String>> getIssues() {
+
+    return new TreeMap<>(_issues);
+  }
+
+  /**
+   * @return the number of lines suppressed by the rate limit since the last summary
+   */
+  synchronized long getSuppressedLines() {
+
+    return _suppressedLines;
+  }
+
+  @Activate
+  @Modified
+  public synchronized void activate(Map<String, Object> properties) {
+
+    _config =
+        ConfigurableUtil.createConfigurable(HealthCheckConfiguration.class, properties);
+    _tokens = _config.issueLogRateLimit();
+    _lastRefill = System.nanoTime();
+
+    _stopSummarizer();
+
+    long interval = Math.max(1, _config.issueLogSummaryInterval());
+    _summarizer = Executors.newSingleThreadScheduledExecutor(
+        new HealthCheckThreadFactory("Health Check Issue Log Summary"));
+    _summarizer.scheduleWithFixedDelay(
+        this::_logSummary, interval, interval, TimeUnit.MILLISECONDS);
+  }
+
+  @Deactivate
+  public synchronized void deactivate() {
+
+    _stopSummarizer();
+  }
+
+  /**
+   * A summary being logged holds the lock of this logger, so it isn't waited for.
+   */
+  private void _stopSummarizer() {
+
+    if (_summarizer != null) {
+      _summarizer.shutdownNow();
+      _summarizer = null;
+    }
+  }
+
+  private final Map<String, Set<String>> _issues = new TreeMap<>();
+
+  private volatile HealthCheckConfiguration _config;
+  private double _tokens;
+  private long _lastRefill;
+  private long _suppressedLines;
+  private ScheduledExecutorService _summarizer;
+
+  private static final Logger _log = LoggerFactory.getLogger(IssueLogger.class);
+}
@@ -0,0 +1,149 @@
+package com.github.lgdd.liferay.health;
+
+import com.github.lgdd.liferay.health.api.HealthCheckIssuesResponse;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Assign an increasing version to each distinct set of issues of a probe and keep the most recent
+ * ones, so a client can get only the issues added or removed since the version it knows. A client
+ * knowing a version which is not kept anymore gets a snapshot of all the issues instead.
+ */
+public class IssueVersionHistory {
+
+  /**
+   * @param capacity number of versions kept per probe type
+   */
+  @SuppressWarnings("unchecked")
+  public IssueVersionHistory(int capacity) {
+
+    _capacity = Math.max(1, capacity);
+
+    _versions = new Deque[HealthCheckProbeType.values().length];
+    for (int i = 0; i < _versions.length; i++) {
+      _versions[i] = new ArrayDeque<>(_capacity);
+    }
+  }
+
+  /**
+   * Record the issues found by an evaluation of a probe, as a new version if they changed.
+   *
+   * @param probeType type of probe we're looking for (e.g. readiness or liveness)
+   * @param issues    issues found by the evaluation
+   */
+  public synchronized void record(HealthCheckProbeType probeType, List<String> issues) {
+
+    Deque<IssueVersion> versions = _versions[probeType.ordinal()];
+    IssueVersion current = versions.peekLast();
+    Set<String> currentIssues = new LinkedHashSet<>(issues);
+
+    if (current != null && current.issues.equals(currentIssues)) {
+      return;
+    }
+
+    if (versions.size() == _capacity) {
+      versions.removeFirst();
+    }
+
+    versions.addLast(new IssueVersion(++_lastVersion, currentIssues));
+  }
+
+  /**
+   * @param probeType type of probe we're looking for (e.g. readiness or liveness)
+   * @param since     version known by the client, 0 if none
+   * @return the issues added and removed since this version, or all the current issues if this
+   * version is not kept
+   */
+  public synchronized HealthCheckIssuesResponse getIssues(
+      HealthCheckProbeType probeType, long since) {
+
+    Deque<IssueVersion> versions = _versions[probeType.ordinal()];
+    IssueVersion current = versions.peekLast();
+
+    if (current == null) {
+      return HealthCheckIssuesResponse.builder()
+                                      .since(since)
+                                      .snapshot(true)
+                                      .build();
+    }
+
+    IssueVersion known = null;
+
+    Iterator<IssueVersion> iterator = versions.descendingIterator();
+    while (iterator.hasNext()) {
+      IssueVersion version = iterator.next();
+      if (version.version == since) {
+        known = version;
+        break;
+      }
+    }
+
+    if (known == null) {
+      return HealthCheckIssuesResponse.builder()
+                                      .version(current.version)
+                                      .since(since)
+                                      .snapshot(true)
+                                      .issues(new ArrayList<>(current.issues))
+                                      .build();
+    }
+
+    return HealthCheckIssuesResponse.builder()
+                                    .version(current.version)
+                                    .since(since)
+                                    .added(_difference(current.issues, known.issues))
+                                    .removed(_difference(known.issues, current.issues))
+                                    .build();
+  }
+
+  public synchronized void clear() {
+
+    for (Deque<IssueVersion> versions : _versions) {
+      versions.clear();
+    }
+  }
+
+  private static List<String> _difference(Set<String> issues, Set<String> excludedIssues) {
+
+    if (issues == excludedIssues) {
+      return Collections.emptyList();
+    }
+
+    List<String> difference = new ArrayList<>();
+    for (String issue : issues) {
+      if (!excludedIssues.contains(issue)) {
+        difference.add(issue);
+      }
+    }
+    return difference;
+  }
+
+  /**
+   * A distinct set of issues of a probe and its version.
+   */
+  private static class IssueVersion {
+
+    IssueVersion(long version, Set<String> issues) {
+
+      this.version = version;
+      this.issues = issues;
+    }
+
+    final long version;
+    final Set<String> issues;
+  }
+
+  private final int _capacity;
+  private final Deque<IssueVersion>[] _versions;
+
+  /**
+   * Seeded with the current time, so the versions known by a client are not reused once the
+   * history is created again, e.g. after a restart.
+   */
+  private long _lastVersion = System.currentTimeMillis();
+}
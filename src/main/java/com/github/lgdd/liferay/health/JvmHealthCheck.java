@@ -0,0 +1,254 @@
+package com.github.lgdd.liferay.health;
+
+import com.github.lgdd.liferay.health.api.HealthCheckResponse;
+import com.github.lgdd.liferay.health.api.HealthCheckStatus;
+import com.liferay.portal.configuration.metatype.bnd.util.ConfigurableUtil;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Deactivate;
+import org.osgi.service.component.annotations.Modified;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Verify the JVM itself is live: no deadlocked threads, a GC time ratio over a sliding window
+ * below a threshold, and an old generation occupancy after GC below a threshold. The JVM is sampled
+ * on a background timer, so the liveness probe only reads the result of the latest sample and stays
+ * cheap while the JVM is struggling. A sample older than the maximum staleness, or than two sampling
+ * intervals if longer, is reported as DOWN, so a stalled sampler can't keep reporting an old UP.
+ */
+@Component(
+    immediate = true,
+    configurationPid = HealthCheckConfiguration.PID,
+    service = JvmHealthCheck.class
+)
+public class JvmHealthCheck {
+
+  /**
+   * @return the result of the latest sample of the JVM, or a DOWN response if it is too old
+   * @see HealthCheckConfiguration#verifyJvmForLiveness
+   */
+  public HealthCheckResponse verify() {
+
+    HealthCheckConfiguration config = _config;
+    ProbeResult result = _result;
+
+    long maxStaleness = Math.max(config.maxStaleness(), 2 * config.jvmSamplingInterval());
+    long age = System.currentTimeMillis() - result.getTimestamp();
+
+    if (age > maxStaleness) {
+      String message = "The last JVM sample is " + age
+          + " ms old, exceeding the maximum staleness of " + maxStaleness + " ms";
+      return HealthCheckResponse.builder()
+                                .status(HealthCheckStatus.DOWN)
+                                .message(message)
+                                .issues(Collections.singletonList(message))
+                                .build();
+    }
+
+    return result.getResponse();
+  }
+
+  /**
+   * Sample the JVM and keep the result to be returned by {@link #verify()}.
+   *
+   * @param gcSamples GC time window of the sampler calling this method
+   */
+  private void _sample(Deque<long[]> gcSamples) {
+
+    try {
+      HealthCheckConfiguration config = _config;
+      List<String> issues = new ArrayList<>();
+
+      _verifyDeadlocks(issues);
+      _verifyGcTimeRatio(config, gcSamples, issues);
+      _verifyOldGenOccupancy(config, issues);
+
+      HealthCheckResponse response;
+
+      if (issues.isEmpty()) {
+        response = HealthCheckResponse.builder()
+                                      .status(HealthCheckStatus.UP)
+                                      .message(OK_MESSAGE)
+                                      .build();
+      } else {
+        String message = issues.size() > 1 ? "Found " + issues.size() + " issues with the JVM"
+                                           : "Found 1 issue with the JVM";
+        response = HealthCheckResponse.builder()
+                                      .status(HealthCheckStatus.DOWN)
+                                      .message(message)
+                                      .issues(issues)
+                                      .build();
+      }
+
+      _result = new ProbeResult(response, System.currentTimeMillis());
+    } catch (Exception e) {
+      _log.error("Unable to sample the JVM", e);
+    }
+  }
+
+  private void _verifyDeadlocks(List<String> issues) {
+
+    long[] threadIds = _threadMXBean.findDeadlockedThreads();
+
+    if (threadIds == null) {
+      return;
+    }
+
+    for (ThreadInfo threadInfo : _threadMXBean.getThreadInfo(threadIds)) {
+      if (threadInfo != null) {
+        issues.add("Thread [" + threadInfo.getThreadName() + "] is deadlocked waiting for "
+                       + threadInfo.getLockName() + " held by ["
+                       + threadInfo.getLockOwnerName() + "]");
+      }
+    }
+  }
+
+  /**
+   * Compare the time spent in GC to the elapsed time since the oldest sample of the window.
+   */
+  private void _verifyGcTimeRatio(
+      HealthCheckConfiguration config, Deque<long[]> gcSamples, List<String> issues) {
+
+    long now = System.nanoTime();
+    long gcTime = 0;
+
+    for (GarbageCollectorMXBean garbageCollectorMXBean :
+        ManagementFactory.getGarbageCollectorMXBeans()) {
+      gcTime += Math.max(0, garbageCollectorMXBean.getCollectionTime());
+    }
+
+    long window = TimeUnit.MILLISECONDS.toNanos(config.gcTimeWindow());
+
+    gcSamples.addLast(new long[]{now, gcTime});
+    while (gcSamples.size() > 2 && now - gcSamples.peekFirst()[0] > window) {
+      gcSamples.removeFirst();
+    }
+
+    long[] oldest = gcSamples.peekFirst();
+    long elapsed = TimeUnit.NANOSECONDS.toMillis(now - oldest[0]);
+
+    if (elapsed <= 0) {
+      return;
+    }
+
+    long gcTimePercent = (gcTime - oldest[1]) * 100 / elapsed;
+
+    if (gcTimePercent > config.maxGcTimePercent()) {
+      issues.add("JVM spent " + gcTimePercent + "% of the last " + elapsed + " ms in GC (max "
+                     + config.maxGcTimePercent() + "%)");
+    }
+  }
+
+  /**
+   * Compare the occupancy of the old generation after the last GC to the maximum size of the old
+   * generation, when the memory pools expose both.
+   */
+  private void _verifyOldGenOccupancy(HealthCheckConfiguration config, List<String> issues) {
+
+    for (MemoryPoolMXBean memoryPoolMXBean : ManagementFactory.getMemoryPoolMXBeans()) {
+      String name = memoryPoolMXBean.getName();
+
+      if (memoryPoolMXBean.getType() != MemoryType.HEAP
+          || !(name.contains("Old Gen") || name.contains("Tenured"))) {
+        continue;
+      }
+
+      MemoryUsage usage = memoryPoolMXBean.getCollectionUsage();
+
+      if (usage == null || usage.getMax() <= 0) {
+        continue;
+      }
+
+      long occupancyPercent = usage.getUsed() * 100 / usage.getMax();
+
+      if (occupancyPercent > config.maxOldGenOccupancyPercent()) {
+        issues.add("[" + name + "] is " + occupancyPercent + "% full after GC (max "
+                       + config.maxOldGenOccupancyPercent() + "%)");
+      }
+    }
+  }
+
+  @Activate
+  @Modified
+  public synchronized void activate(Map<String, Object> properties) {
+
+    _config =
+        ConfigurableUtil.createConfigurable(HealthCheckConfiguration.class, properties);
+
+    _stopSampler();
+
+    if (_config.verifyJvmForLiveness()) {
+      // Each sampler starts a new GC time window, only accessed by its own thread
+      Deque<long[]> gcSamples = new ArrayDeque<>();
+
+      _result = new ProbeResult(_NOT_SAMPLED_RESPONSE, System.currentTimeMillis());
+      _sampler = Executors.newSingleThreadScheduledExecutor(
+          new HealthCheckThreadFactory("Health Check JVM Sampler"));
+      _sampler.scheduleWithFixedDelay(
+          () -> _sample(gcSamples), 0, Math.max(1, _config.jvmSamplingInterval()),
+          TimeUnit.MILLISECONDS);
+    }
+  }
+
+  @Deactivate
+  public synchronized void deactivate() {
+
+    _stopSampler();
+  }
+
+  private void _stopSampler() {
+
+    if (_sampler == null) {
+      return;
+    }
+
+    _sampler.shutdownNow();
+
+    try {
+      if (!_sampler.awaitTermination(_SAMPLER_TERMINATION_TIMEOUT, TimeUnit.MILLISECONDS)) {
+        _log.warn("The JVM sampler did not stop within " + _SAMPLER_TERMINATION_TIMEOUT + " ms");
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+
+    _sampler = null;
+  }
+
+  public static final String OK_MESSAGE = "No issues with the JVM";
+
+  private static final HealthCheckResponse _NOT_SAMPLED_RESPONSE =
+      HealthCheckResponse.builder()
+                         .status(HealthCheckStatus.UP)
+                         .message("The JVM has not been sampled yet")
+                         .build();
+
+  private static final long _SAMPLER_TERMINATION_TIMEOUT = 5000;
+
+  private final ThreadMXBean _threadMXBean = ManagementFactory.getThreadMXBean();
+
+  private volatile ProbeResult _result =
+      new ProbeResult(_NOT_SAMPLED_RESPONSE, System.currentTimeMillis());
+
+  private volatile HealthCheckConfiguration _config;
+  private ScheduledExecutorService _sampler;
+
+  private static final Logger _log = LoggerFactory.getLogger(JvmHealthCheck.class);
+}
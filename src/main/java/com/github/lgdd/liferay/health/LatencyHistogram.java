@@ -0,0 +1,61 @@
+package com.github.lgdd.liferay.health;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency histogram with fixed buckets, recorded with atomic counters only so recording a value
+ * neither allocates nor locks.
+ */
+public class LatencyHistogram {
+
+  /**
+   * Upper bounds of the buckets, in seconds.
+   */
+  public static final double[] BUCKETS = {
+      0.001, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10
+  };
+
+  public void record(long durationNanos) {
+
+    int i = 0;
+    while (i < _BUCKET_NANOS.length && durationNanos > _BUCKET_NANOS[i]) {
+      i++;
+    }
+    _counts.incrementAndGet(i);
+    _sumNanos.add(durationNanos);
+  }
+
+  /**
+   * @return the number of values recorded in each bucket, the last one counting the values above
+   * the highest bound
+   */
+  public long[] getCounts() {
+
+    long[] counts = new long[_counts.length()];
+    for (int i = 0; i < counts.length; i++) {
+      counts[i] = _counts.get(i);
+    }
+    return counts;
+  }
+
+  /**
+   * @return the sum of the recorded values, in seconds
+   */
+  public double getSum() {
+
+    return _sumNanos.sum() / 1e9;
+  }
+
+  private static final long[] _BUCKET_NANOS = new long[BUCKETS.length];
+
+  static {
+    for (int i = 0; i < BUCKETS.length; i++) {
+      _BUCKET_NANOS[i] = (long) (BUCKETS[i] * TimeUnit.SECONDS.toNanos(1));
+    }
+  }
+
+  private final AtomicLongArray _counts = new AtomicLongArray(BUCKETS.length + 1);
+  private final LongAdder _sumNanos = new LongAdder();
+}
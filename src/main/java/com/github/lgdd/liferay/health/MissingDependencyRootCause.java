@@ -0,0 +1,58 @@
+package com.github.lgdd.liferay.health;
+
+import java.util.List;
+import lombok.Value;
+
+/**
+ * Missing dependency which no unregistered component could provide, i.e. one of the dependencies
+ * explaining why components are unregistered, along with the number of components it blocks.
+ *
+ * @see DependencyGraphSnapshot#getRootCauses()
+ */
+@Value
+public class MissingDependencyRootCause {
+
+  /**
+   * Type of dependency (e.g. configuration, service, resource, bundle or a custom type).
+   */
+  String type;
+
+  String name;
+
+  /**
+   * Symbolic names of the bundles with components requiring this dependency directly.
+   */
+  List<String> bundleNames;
+
+  /**
+   * Number of components requiring this dependency directly.
+   */
+  int requiringComponentCount;
+
+  /**
+   * Number of unregistered components because of this dependency, i.e. the components requiring it
+   * directly and the ones depending on them transitively.
+   */
+  int affectedComponentCount;
+
+  /**
+   * @return a one-line description of the root cause, to be listed in the issues of a response
+   */
+  public String toIssue() {
+
+    StringBuilder sb = new StringBuilder("Missing ").append(type).append(' ').append(name);
+    sb.append(" required by ").append(requiringComponentCount);
+    sb.append(requiringComponentCount > 1 ? " components" : " component");
+    sb.append(bundleNames.size() > 1 ? " in bundles " : " in bundle ");
+    sb.append(String.join(", ", bundleNames));
+
+    int transitiveCount = affectedComponentCount - requiringComponentCount;
+    if (transitiveCount > 0) {
+      sb.append(", and ").append(transitiveCount);
+      sb.append(transitiveCount > 1 ? " components" : " component").append(" depending on them");
+    }
+
+    return sb.toString();
+  }
+
+}
@@ -0,0 +1,58 @@
+package com.github.lgdd.liferay.health;
+
+import com.github.lgdd.liferay.health.api.HealthCheckResponse;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Coalesce concurrent evaluations of the same probe type: the first caller evaluates the probe and
+ * the callers arriving while it is in flight wait for its response instead of starting their own
+ * evaluation.
+ */
+public class ProbeCoalescer {
+
+  /**
+   * @param probeType type of probe we're looking for (e.g. readiness or liveness)
+   * @param evaluator evaluation to run if none is in flight for this probe type
+   * @return the response of the evaluation in flight, or of a new one if there is none
+   */
+  public HealthCheckResponse evaluate(
+      HealthCheckProbeType probeType, Supplier<HealthCheckResponse> evaluator) {
+
+    CompletableFuture<HealthCheckResponse> future = new CompletableFuture<>();
+    CompletableFuture<HealthCheckResponse> inFlight = _inFlight.putIfAbsent(probeType, future);
+
+    if (inFlight != null) {
+      return _join(inFlight);
+    }
+
+    try {
+      HealthCheckResponse response = evaluator.get();
+      future.complete(response);
+      return response;
+    } catch (RuntimeException | Error e) {
+      future.completeExceptionally(e);
+      throw e;
+    } finally {
+      _inFlight.remove(probeType, future);
+    }
+  }
+
+  private HealthCheckResponse _join(CompletableFuture<HealthCheckResponse> inFlight) {
+
+    try {
+      return inFlight.join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw e;
+    }
+  }
+
+  private final Map<HealthCheckProbeType, CompletableFuture<HealthCheckResponse>> _inFlight =
+      new ConcurrentHashMap<>();
+}
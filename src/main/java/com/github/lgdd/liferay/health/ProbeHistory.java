@@ -0,0 +1,144 @@
+package com.github.lgdd.liferay.health;
+
+import com.github.lgdd.liferay.health.api.HealthCheckStatus;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keep the recent outcomes of each probe type in a fixed-size ring buffer: timestamp, status,
+ * duration, number of issues and a fingerprint of the issues. The buffer is made of primitive
+ * arrays allocated once, so its memory is constant and recording an outcome allocates nothing.
+ */
+public class ProbeHistory {
+
+  /**
+   * @param capacity number of outcomes kept per probe type
+   */
+  public ProbeHistory(int capacity) {
+
+    _rings = new Ring[HealthCheckProbeType.values().length];
+    for (int i = 0; i < _rings.length; i++) {
+      _rings[i] = new Ring(Math.max(1, capacity));
+    }
+  }
+
+  /**
+   * @param probeType     type of probe we're looking for (e.g. readiness or liveness)
+   * @param status        status of the probe
+   * @param durationNanos time the evaluation took
+   * @param issues        issues found by the evaluation
+   */
+  public void record(
+      HealthCheckProbeType probeType, HealthCheckStatus status, long durationNanos,
+      List<String> issues) {
+
+    // Order-independent, like Set#hashCode, so the same issues found in a different order match
+    int fingerprint = 0;
+    for (int i = 0; i < issues.size(); i++) {
+      fingerprint += issues.get(i).hashCode();
+    }
+
+    Ring ring = _rings[probeType.ordinal()];
+
+    synchronized (ring) {
+      int index = ring.next;
+      ring.timestamps[index] = System.currentTimeMillis();
+      ring.up[index] = HealthCheckStatus.UP.equals(status);
+      ring.durations[index] = durationNanos;
+      ring.issueCounts[index] = issues.size();
+      ring.fingerprints[index] = fingerprint;
+      ring.next = (index + 1) % ring.timestamps.length;
+      ring.size = Math.min(ring.size + 1, ring.timestamps.length);
+    }
+  }
+
+  /**
+   * Write the outcomes of a probe within a window as JSON, oldest first, along with the number of
+   * status changes (flaps) and the 99th percentile of the duration within this window.
+   *
+   * @param probeType    type of probe we're looking for (e.g. readiness or liveness)
+   * @param windowMillis length of the window ending now, 0 for every outcome kept
+   * @return the history as JSON
+   */
+  public String toJson(HealthCheckProbeType probeType, long windowMillis) {
+
+    Ring ring = _rings[probeType.ordinal()];
+    long from = windowMillis > 0 ? System.currentTimeMillis() - windowMillis : Long.MIN_VALUE;
+
+    StringBuilder sb = new StringBuilder(256);
+    StringBuilder entries = new StringBuilder(ring.timestamps.length * 96);
+    long[] durations;
+    int count = 0;
+    int flaps = 0;
+
+    synchronized (ring) {
+      durations = new long[ring.size];
+      int first = (ring.next - ring.size + ring.timestamps.length) % ring.timestamps.length;
+      boolean previousUp = false;
+
+      for (int i = 0; i < ring.size; i++) {
+        int index = (first + i) % ring.timestamps.length;
+        if (ring.timestamps[index] < from) {
+          continue;
+        }
+        if (count > 0) {
+          entries.append(',');
+          if (ring.up[index] != previousUp) {
+            flaps++;
+          }
+        }
+        previousUp = ring.up[index];
+        durations[count++] = ring.durations[index];
+
+        entries.append("{\"timestamp\":").append(ring.timestamps[index]);
+        entries.append(",\"status\":\"").append(ring.up[index] ? "UP" : "DOWN");
+        entries.append("\",\"durationMicros\":");
+        entries.append(TimeUnit.NANOSECONDS.toMicros(ring.durations[index]));
+        entries.append(",\"issueCount\":").append(ring.issueCounts[index]);
+        entries.append(",\"issueFingerprint\":\"");
+        entries.append(Integer.toHexString(ring.fingerprints[index])).append("\"}");
+      }
+    }
+
+    long p99 = 0;
+    if (count > 0) {
+      Arrays.sort(durations, 0, count);
+      p99 = durations[(int) Math.ceil(count * 0.99) - 1];
+    }
+
+    sb.append("{\"probe\":\"").append(probeType.name().toLowerCase());
+    sb.append("\",\"windowMillis\":").append(windowMillis);
+    sb.append(",\"count\":").append(count);
+    sb.append(",\"flaps\":").append(flaps);
+    sb.append(",\"p99DurationMicros\":").append(TimeUnit.NANOSECONDS.toMicros(p99));
+    sb.append(",\"entries\":[").append(entries).append("]}");
+
+    return sb.toString();
+  }
+
+  /**
+   * Outcomes of a probe type, the oldest one being overwritten once the buffer is full.
+   */
+  private static class Ring {
+
+    Ring(int capacity) {
+
+      timestamps = new long[capacity];
+      up = new boolean[capacity];
+      durations = new long[capacity];
+      issueCounts = new int[capacity];
+      fingerprints = new int[capacity];
+    }
+
+    final long[] timestamps;
+    final boolean[] up;
+    final long[] durations;
+    final int[] issueCounts;
+    final int[] fingerprints;
+    int next;
+    int size;
+  }
+
+  private final Ring[] _rings;
+}
@@ -0,0 +1,339 @@
+package com.github.lgdd.liferay.health;
+
+import com.github.lgdd.liferay.health.api.HealthCheckStatus;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import org.apache.felix.dm.diagnostics.MissingDependency;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Reference;
+
+/**
+ * Record the outcome and latency of each probe and of each check it runs, and expose them along
+ * with the state of the bundles and components in the Prometheus text format. Recording only
+ * updates atomic counters, so instrumentation adds no allocation or contention to the probes once
+ * a check has been recorded for the first time.
+ */
+@Component(
+    immediate = true,
+    service = ProbeMetrics.class
+)
+public class ProbeMetrics {
+
+  public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+  public static final String CHECK_REQUIRED_BUNDLES = "required_bundles";
+  public static final String CHECK_BUNDLE_STATES = "bundle_states";
+  public static final String CHECK_COMPONENTS = "components";
+  public static final String CHECK_SCR_COMPONENTS = "scr_components";
+  public static final String CHECK_JVM = "jvm";
+  public static final String CHECK_SATURATION = "saturation";
+  public static final String CHECK_BASELINE = "baseline";
+
+  public void recordProbe(
+      HealthCheckProbeType probeType, HealthCheckStatus status, long durationNanos) {
+
+    _probes[probeType.ordinal()].record(status, durationNanos);
+  }
+
+  public void recordCheck(
+      HealthCheckProbeType probeType, String check, HealthCheckStatus status, long durationNanos) {
+
+    _getMetrics(_checks[probeType.ordinal()], check).record(status, durationNanos);
+  }
+
+  /**
+   * Record the outcome of a custom HealthCheckService, once it answered.
+   *
+   * @param probeType    type of probe we're looking for (e.g. readiness or liveness)
+   * @param symbolicName symbolic name of the bundle providing the custom health check
+   * @param status       status returned by the custom health check, DOWN if it failed
+   * @param durationNanos time it took to answer
+   */
+  public void recordCustomCheck(
+      HealthCheckProbeType probeType, String symbolicName, HealthCheckStatus status,
+      long durationNanos) {
+
+    _getMetrics(_customChecks[probeType.ordinal()], symbolicName).record(status, durationNanos);
+  }
+
+  /**
+   * Record a custom HealthCheckService which did not answer before its deadline.
+   */
+  public void recordCustomCheckTimeout(HealthCheckProbeType probeType, String symbolicName) {
+
+    _getMetrics(_customChecks[probeType.ordinal()], symbolicName).timeouts.increment();
+  }
+
+  /**
+   * @return the outcome of the last run of each check, UP or DOWN, keyed by probe and check name
+   * (e.g. readiness/bundle_states, or readiness/custom/symbolic.name for a custom check)
+   */
+  public Map<String, String> getLastCheckStatuses() {
+
+    Map<String, String> statuses = new TreeMap<>();
+    _forEachCheck((name, checkMetrics) -> {
+      int status = checkMetrics.status;
+      if (status != _UNKNOWN) {
+        statuses.put(name, status == 1 ? HealthCheckStatus.UP.name()
+                                       : HealthCheckStatus.DOWN.name());
+      }
+    });
+    return statuses;
+  }
+
+  /**
+   * @return the duration of the last run of each check in microseconds, keyed like the statuses
+   * @see #getLastCheckStatuses()
+   */
+  public Map<String, Long> getLastCheckDurations() {
+
+    Map<String, Long> durations = new TreeMap<>();
+    _forEachCheck((name, checkMetrics) -> {
+      if (checkMetrics.status != _UNKNOWN) {
+        durations.put(name, TimeUnit.NANOSECONDS.toMicros(checkMetrics.lastDurationNanos));
+      }
+    });
+    return durations;
+  }
+
+  private void _forEachCheck(BiConsumer<String, CheckMetrics> consumer) {
+
+    for (HealthCheckProbeType probeType : HealthCheckProbeType.values()) {
+      String prefix = probeType.name().toLowerCase() + "/";
+      _checks[probeType.ordinal()].forEach(
+          (check, checkMetrics) -> consumer.accept(prefix + check, checkMetrics));
+      _customChecks[probeType.ordinal()].forEach(
+          (symbolicName, checkMetrics) ->
+              consumer.accept(prefix + "custom/" + symbolicName, checkMetrics));
+    }
+  }
+
+  /**
+   * @return the metrics in the Prometheus text exposition format
+   */
+  public String scrape() {
+
+    StringBuilder sb = new StringBuilder(8192);
+
+    sb.append("# HELP liferay_health_probe_up Whether the last evaluation of the probe was UP.\n");
+    sb.append("# TYPE liferay_health_probe_up gauge\n");
+    for (HealthCheckProbeType probeType : HealthCheckProbeType.values()) {
+      _appendStatus(
+          sb, "liferay_health_probe_up", _labels(probeType), _probes[probeType.ordinal()]);
+    }
+
+    sb.append("# HELP liferay_health_check_up Whether the last run of the check was UP.\n");
+    sb.append("# TYPE liferay_health_check_up gauge\n");
+    for (HealthCheckProbeType probeType : HealthCheckProbeType.values()) {
+      for (Map.Entry<String, CheckMetrics> entry : _checks[probeType.ordinal()].entrySet()) {
+        _appendStatus(
+            sb, "liferay_health_check_up", _labels(probeType, entry.getKey()), entry.getValue());
+      }
+      for (Map.Entry<String, CheckMetrics> entry :
+          _customChecks[probeType.ordinal()].entrySet()) {
+        _appendStatus(
+            sb, "liferay_health_check_up", _customLabels(probeType, entry.getKey()),
+            entry.getValue());
+      }
+    }
+
+    sb.append("# HELP liferay_health_custom_check_timeouts_total ");
+    sb.append("Number of custom health checks which missed their deadline.\n");
+    sb.append("# TYPE liferay_health_custom_check_timeouts_total counter\n");
+    for (HealthCheckProbeType probeType : HealthCheckProbeType.values()) {
+      for (Map.Entry<String, CheckMetrics> entry :
+          _customChecks[probeType.ordinal()].entrySet()) {
+        _appendSample(
+            sb, "liferay_health_custom_check_timeouts_total",
+            _customLabels(probeType, entry.getKey()), entry.getValue().timeouts.sum());
+      }
+    }
+
+    sb.append("# HELP liferay_health_probe_duration_seconds Duration of the probe evaluations.\n");
+    sb.append("# TYPE liferay_health_probe_duration_seconds histogram\n");
+    for (HealthCheckProbeType probeType : HealthCheckProbeType.values()) {
+      _appendHistogram(
+          sb, "liferay_health_probe_duration_seconds", _labels(probeType),
+          _probes[probeType.ordinal()]);
+    }
+
+    sb.append("# HELP liferay_health_check_duration_seconds Duration of the checks.\n");
+    sb.append("# TYPE liferay_health_check_duration_seconds histogram\n");
+    for (HealthCheckProbeType probeType : HealthCheckProbeType.values()) {
+      for (Map.Entry<String, CheckMetrics> entry : _checks[probeType.ordinal()].entrySet()) {
+        _appendHistogram(
+            sb, "liferay_health_check_duration_seconds", _labels(probeType, entry.getKey()),
+            entry.getValue());
+      }
+      for (Map.Entry<String, CheckMetrics> entry :
+          _customChecks[probeType.ordinal()].entrySet()) {
+        _appendHistogram(
+            sb, "liferay_health_check_duration_seconds",
+            _customLabels(probeType, entry.getKey()), entry.getValue());
+      }
+    }
+
+    sb.append("# HELP liferay_health_bundles Number of bundles in an undesired state.\n");
+    sb.append("# TYPE liferay_health_bundles gauge\n");
+    _appendSample(
+        sb, "liferay_health_bundles", "{state=\"resolved\"}",
+        _bundleStateIndex.getResolvedBundles().size());
+    _appendSample(
+        sb, "liferay_health_bundles", "{state=\"installed\"}",
+        _bundleStateIndex.getInstalledBundles().size());
+
+    DependencyGraphSnapshot snapshot = _dependencyGraphTracker.getLastSnapshot();
+
+    if (snapshot != null) {
+      sb.append("# HELP liferay_health_unregistered_components ");
+      sb.append("Number of unregistered components in the last dependency graph snapshot.\n");
+      sb.append("# TYPE liferay_health_unregistered_components gauge\n");
+      _appendSample(
+          sb, "liferay_health_unregistered_components", "",
+          snapshot.getUnregisteredComponents().size());
+
+      sb.append("# HELP liferay_health_missing_dependencies ");
+      sb.append("Number of missing dependencies in the last dependency graph snapshot.\n");
+      sb.append("# TYPE liferay_health_missing_dependencies gauge\n");
+      for (Map.Entry<String, List<MissingDependency>> entry :
+          snapshot.getMissingDependencies().entrySet()) {
+        _appendSample(
+            sb, "liferay_health_missing_dependencies",
+            "{type=\"" + entry.getKey() + "\"}", entry.getValue().size());
+      }
+      _appendSample(
+          sb, "liferay_health_missing_dependencies", "{type=\"custom\"}",
+          snapshot.getMissingCustomDependencies().size());
+
+      sb.append("# HELP liferay_health_dependency_graph_generation ");
+      sb.append("Generation of the last dependency graph snapshot.\n");
+      sb.append("# TYPE liferay_health_dependency_graph_generation gauge\n");
+      _appendSample(
+          sb, "liferay_health_dependency_graph_generation", "", snapshot.getGeneration());
+    }
+
+    return sb.toString();
+  }
+
+  private static CheckMetrics _getMetrics(Map<String, CheckMetrics> metrics, String name) {
+
+    CheckMetrics checkMetrics = metrics.get(name);
+
+    if (checkMetrics == null) {
+      checkMetrics = new CheckMetrics();
+      CheckMetrics previous = metrics.putIfAbsent(name, checkMetrics);
+      if (previous != null) {
+        checkMetrics = previous;
+      }
+    }
+
+    return checkMetrics;
+  }
+
+  private static String _labels(HealthCheckProbeType probeType) {
+
+    return "{probe=\"" + probeType.name().toLowerCase() + "\"";
+  }
+
+  private static String _labels(HealthCheckProbeType probeType, String check) {
+
+    return _labels(probeType) + ",check=\"" + _escape(check) + "\"";
+  }
+
+  private static String _customLabels(HealthCheckProbeType probeType, String symbolicName) {
+
+    return _labels(probeType, "custom") + ",bundle=\"" + _escape(symbolicName) + "\"";
+  }
+
+  private static String _escape(String value) {
+
+    return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+  }
+
+  private static void _appendStatus(
+      StringBuilder sb, String name, String labels, CheckMetrics checkMetrics) {
+
+    int status = checkMetrics.status;
+    if (status != _UNKNOWN) {
+      _appendSample(sb, name, labels + "}", status);
+    }
+  }
+
+  private static void _appendHistogram(
+      StringBuilder sb, String name, String labels, CheckMetrics checkMetrics) {
+
+    long[] counts = checkMetrics.histogram.getCounts();
+    long cumulativeCount = 0;
+
+    for (int i = 0; i < counts.length; i++) {
+      cumulativeCount += counts[i];
+      String le = i < LatencyHistogram.BUCKETS.length
+                  ? String.valueOf(LatencyHistogram.BUCKETS[i]) : "+Inf";
+      _appendSample(sb, name + "_bucket", labels + ",le=\"" + le + "\"}", cumulativeCount);
+    }
+
+    sb.append(name).append("_sum").append(labels).append("} ");
+    sb.append(checkMetrics.histogram.getSum()).append('\n');
+    _appendSample(sb, name + "_count", labels + "}", cumulativeCount);
+  }
+
+  private static void _appendSample(StringBuilder sb, String name, String labels, long value) {
+
+    sb.append(name).append(labels).append(' ').append(value).append('\n');
+  }
+
+  /**
+   * Last outcome and latency distribution of a probe or a check.
+   */
+  private static class CheckMetrics {
+
+    void record(HealthCheckStatus status, long durationNanos) {
+
+      this.status = HealthCheckStatus.UP.equals(status) ? 1 : 0;
+      lastDurationNanos = durationNanos;
+      histogram.record(durationNanos);
+    }
+
+    final LatencyHistogram histogram = new LatencyHistogram();
+    final LongAdder timeouts = new LongAdder();
+    volatile int status = _UNKNOWN;
+    volatile long lastDurationNanos;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <T> Map<String, T>[] _newMaps() {
+
+    Map<String, T>[] maps = new Map[HealthCheckProbeType.values().length];
+    for (int i = 0; i < maps.length; i++) {
+      maps[i] = new ConcurrentHashMap<>();
+    }
+    return maps;
+  }
+
+  private static CheckMetrics[] _newProbeMetrics() {
+
+    CheckMetrics[] probeMetrics = new CheckMetrics[HealthCheckProbeType.values().length];
+    for (int i = 0; i < probeMetrics.length; i++) {
+      probeMetrics[i] = new CheckMetrics();
+    }
+    return probeMetrics;
+  }
+
+  private static final int _UNKNOWN = -1;
+
+  private final CheckMetrics[] _probes = _newProbeMetrics();
+
+  private final Map<String, CheckMetrics>[] _checks = _newMaps();
+  private final Map<String, CheckMetrics>[] _customChecks = _newMaps();
+
+  @Reference
+  private BundleStateIndex _bundleStateIndex;
+
+  @Reference
+  private DependencyGraphTracker _dependencyGraphTracker;
+}
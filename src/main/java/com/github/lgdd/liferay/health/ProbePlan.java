@@ -0,0 +1,174 @@
+package com.github.lgdd.liferay.health;
+
+import com.github.lgdd.liferay.health.api.HealthCheckResponse;
+import com.github.lgdd.liferay.health.api.HealthCheckStatus;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Checks of a probe, compiled from the configuration when it changes so evaluating the probe does
+ * no more than running them. The checks run in their configured order, the cheap ones first by
+ * default, and either stop at the first DOWN (fail-fast) or all run, the remaining ones in
+ * parallel, to report every issue at once (full report).
+ */
+public class ProbePlan {
+
+  /**
+   * @param probeType    type of probe we're looking for (e.g. readiness or liveness)
+   * @param stages       checks of the probe, in the order they run
+   * @param fullReport   true if every check runs, false to stop at the first DOWN
+   * @param executor     runs the checks in parallel in full report mode
+   * @param probeMetrics records the outcome and duration of each check
+   * @param issueLogger  logs the issues of the checks which ran if they changed
+   */
+  public ProbePlan(
+      HealthCheckProbeType probeType, List<ProbeStage> stages, boolean fullReport,
+      Executor executor, ProbeMetrics probeMetrics, IssueLogger issueLogger) {
+
+    _probeType = probeType;
+    _stages = Collections.unmodifiableList(new ArrayList<>(stages));
+    _fullReport = fullReport;
+    _executor = executor;
+    _probeMetrics = probeMetrics;
+    _issueLogger = issueLogger;
+  }
+
+  public HealthCheckProbeType getProbeType() {
+
+    return _probeType;
+  }
+
+  public List<ProbeStage> getStages() {
+
+    return _stages;
+  }
+
+  /**
+   * @return the response of the first check which is DOWN, or of the last check if every check is
+   * UP. In full report mode, a response holding the issues of every check which is DOWN.
+   */
+  public HealthCheckResponse evaluate() {
+
+    if (_stages.isEmpty()) {
+      _issueLogger.log(_probeType, Collections.emptyMap());
+      return _NO_CHECK_RESPONSE;
+    }
+
+    return _fullReport ? _evaluateFullReport() : _evaluateFailFast();
+  }
+
+  /**
+   * Only the issues of the checks which ran are logged, the ones after the first DOWN are skipped.
+   */
+  private HealthCheckResponse _evaluateFailFast() {
+
+    Map<String, List<String>> issuesByCheck = new LinkedHashMap<>();
+    HealthCheckResponse response = null;
+
+    for (ProbeStage stage : _stages) {
+      response = _run(stage);
+      issuesByCheck.put(stage.getName(), response.getIssues());
+      if (HealthCheckStatus.DOWN.equals(response.getStatus())) {
+        break;
+      }
+    }
+
+    _issueLogger.log(_probeType, issuesByCheck);
+
+    return response;
+  }
+
+  /**
+   * Run the first check in the calling thread and the remaining ones in parallel, then merge their
+   * responses in the order of the checks. An issue reported by several checks, such as a bundle
+   * both required and not in its desired state, is only listed once.
+   */
+  private HealthCheckResponse _evaluateFullReport() {
+
+    List<CompletableFuture<HealthCheckResponse>> futures = new ArrayList<>(_stages.size());
+
+    for (ProbeStage stage : _stages.subList(1, _stages.size())) {
+      CompletableFuture<HealthCheckResponse> future;
+      try {
+        future = CompletableFuture.supplyAsync(() -> _run(stage), _executor);
+      } catch (RejectedExecutionException e) {
+        future = CompletableFuture.completedFuture(_run(stage));
+      }
+      futures.add(future);
+    }
+
+    List<HealthCheckResponse> responses = new ArrayList<>(_stages.size());
+    responses.add(_run(_stages.get(0)));
+    for (CompletableFuture<HealthCheckResponse> future : futures) {
+      responses.add(future.join());
+    }
+
+    Map<String, List<String>> issuesByCheck = new LinkedHashMap<>();
+    List<HealthCheckResponse> downResponses = new ArrayList<>();
+    Set<String> issues = new LinkedHashSet<>();
+    long generation = 0;
+
+    for (int i = 0; i < responses.size(); i++) {
+      HealthCheckResponse response = responses.get(i);
+      issuesByCheck.put(_stages.get(i).getName(), response.getIssues());
+      generation = Math.max(generation, response.getGeneration());
+      if (HealthCheckStatus.DOWN.equals(response.getStatus())) {
+        downResponses.add(response);
+        issues.addAll(response.getIssues());
+      }
+    }
+
+    _issueLogger.log(_probeType, issuesByCheck);
+
+    if (downResponses.isEmpty()) {
+      return responses.get(responses.size() - 1);
+    }
+
+    if (downResponses.size() == 1) {
+      return downResponses.get(0);
+    }
+
+    return HealthCheckResponse.builder()
+                              .status(HealthCheckStatus.DOWN)
+                              .message(downResponses.size() + " out of " + responses.size()
+                                           + " checks are down")
+                              .issues(new ArrayList<>(issues))
+                              .generation(generation)
+                              .build();
+  }
+
+  /**
+   * Run a check and record its outcome and duration.
+   */
+  private HealthCheckResponse _run(ProbeStage stage) {
+
+    long start = System.nanoTime();
+    HealthCheckResponse response = stage.getCheck().get();
+
+    _probeMetrics.recordCheck(
+        _probeType, stage.getName(), response.getStatus(), System.nanoTime() - start);
+
+    return response;
+  }
+
+  private static final HealthCheckResponse _NO_CHECK_RESPONSE =
+      HealthCheckResponse.builder()
+                         .status(HealthCheckStatus.UP)
+                         .message("No checks to run")
+                         .build();
+
+  private final HealthCheckProbeType _probeType;
+  private final List<ProbeStage> _stages;
+  private final boolean _fullReport;
+  private final Executor _executor;
+  private final ProbeMetrics _probeMetrics;
+  private final IssueLogger _issueLogger;
+}
@@ -0,0 +1,118 @@
+package com.github.lgdd.liferay.health;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limit the rate of probe requests with token buckets, one shared by every client and one per
+ * remote address, so the cost of evaluating the probes is bounded whatever the number of requests.
+ * Each bucket holds up to one second worth of requests, and is refilled continuously.
+ * <p>
+ * Up to 1024 remote addresses are tracked: past that, the bucket of the least recently seen client
+ * is forgotten, so a caller rotating its source address can't reset the buckets of active clients.
+ */
+public class ProbeRateLimiter {
+
+  /**
+   * @param remoteAddress address of the client, or null if unknown
+   * @param globalRate    maximum number of requests per second from every client, 0 for no limit
+   * @param clientRate    maximum number of requests per second from a single remote address, 0 for
+   *                      no limit
+   * @return true if the request is within the limits, false if it must not trigger an evaluation
+   */
+  public boolean tryAcquire(String remoteAddress, int globalRate, int clientRate) {
+
+    long now = System.nanoTime();
+    TokenBucket clientBucket = null;
+
+    if (clientRate > 0 && remoteAddress != null) {
+      synchronized (_clientBuckets) {
+        clientBucket = _clientBuckets.computeIfAbsent(remoteAddress, k -> new TokenBucket());
+      }
+
+      if (!clientBucket.tryAcquire(now, clientRate)) {
+        return false;
+      }
+    }
+
+    if (globalRate <= 0 || _globalBucket.tryAcquire(now, globalRate)) {
+      return true;
+    }
+
+    // The request is not served, so it must not use up the budget of its client
+    if (clientBucket != null) {
+      clientBucket.release(clientRate);
+    }
+
+    return false;
+  }
+
+  public void clear() {
+
+    synchronized (_clientBuckets) {
+      _clientBuckets.clear();
+    }
+  }
+
+  /**
+   * @return the number of remote addresses currently tracked
+   */
+  int getClientCount() {
+
+    synchronized (_clientBuckets) {
+      return _clientBuckets.size();
+    }
+  }
+
+  private static class TokenBucket {
+
+    synchronized boolean tryAcquire(long now, int rate) {
+
+      _refill(now, rate);
+
+      if (_tokens < 1) {
+        return false;
+      }
+
+      _tokens--;
+      return true;
+    }
+
+    /**
+     * Give back a token acquired for a request which was not served after all.
+     */
+    synchronized void release(int rate) {
+
+      _tokens = Math.min(rate, _tokens + 1);
+    }
+
+    private void _refill(long now, int rate) {
+
+      double ratePerNano = rate / (double) TimeUnit.SECONDS.toNanos(1);
+
+      _tokens = Math.min(rate, _tokens + (now - _lastRefill) * ratePerNano);
+      _lastRefill = now;
+    }
+
+    private double _tokens = Double.MAX_VALUE;
+    private long _lastRefill = System.nanoTime();
+  }
+
+  private static final int _MAX_CLIENTS = 1024;
+
+  private final TokenBucket _globalBucket = new TokenBucket();
+
+  /**
+   * Buckets of the clients, from the least to the most recently seen one.
+   */
+  private final Map<String, TokenBucket> _clientBuckets =
+      new LinkedHashMap<String, TokenBucket>(16, 0.75f, true) {
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, TokenBucket> eldest) {
+
+          return size() > _MAX_CLIENTS;
+        }
+      };
+}
@@ -0,0 +1,21 @@
+package com.github.lgdd.liferay.health;
+
+import com.github.lgdd.liferay.health.api.HealthCheckResponse;
+import lombok.Value;
+
+/**
+ * Outcome of a probe evaluation, along with the time at which it was computed.
+ *
+ * @see ProbeResultCache
+ */
+@Value
+public class ProbeResult {
+
+  HealthCheckResponse response;
+
+  /**
+   * Time at which the evaluation completed, in milliseconds since the epoch.
+   */
+  long timestamp;
+
+}
@@ -0,0 +1,71 @@
+package com.github.lgdd.liferay.health;
+
+import com.github.lgdd.liferay.health.api.HealthCheckResponse;
+import com.github.lgdd.liferay.health.api.HealthCheckStatus;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Hold the latest result of each probe type so it can be served without evaluating the probe
+ * again. A result older than the maximum staleness is replaced by a DOWN response, so a stuck
+ * evaluation can't keep reporting an old UP.
+ */
+public class ProbeResultCache {
+
+  /**
+   * @param probeType type of probe we're looking for (e.g. readiness or liveness)
+   * @return the latest result for this probe type, or null if it has not been evaluated yet
+   */
+  public ProbeResult get(HealthCheckProbeType probeType) {
+
+    return _results.get(probeType.ordinal());
+  }
+
+  /**
+   * @param probeType    type of probe we're looking for (e.g. readiness or liveness)
+   * @param maxStaleness maximum age of the result in milliseconds
+   * @return the latest response for this probe type, or a DOWN response if there is none or if it
+   * is too old
+   */
+  public HealthCheckResponse getResponse(HealthCheckProbeType probeType, long maxStaleness) {
+
+    ProbeResult result = get(probeType);
+    String probeName = probeType.name().toLowerCase();
+
+    if (result == null) {
+      return HealthCheckResponse.builder()
+                                .status(HealthCheckStatus.DOWN)
+                                .message("The " + probeName + " probe has not been evaluated yet")
+                                .build();
+    }
+
+    long age = System.currentTimeMillis() - result.getTimestamp();
+
+    if (age > maxStaleness) {
+      String message = "The last " + probeName + " evaluation is " + age
+          + " ms old, exceeding the maximum staleness of " + maxStaleness + " ms";
+      return HealthCheckResponse.builder()
+                                .status(HealthCheckStatus.DOWN)
+                                .message(message)
+                                .issues(Collections.singletonList(message))
+                                .build();
+    }
+
+    return result.getResponse();
+  }
+
+  public void put(HealthCheckProbeType probeType, HealthCheckResponse response) {
+
+    _results.set(probeType.ordinal(), new ProbeResult(response, System.currentTimeMillis()));
+  }
+
+  public void clear() {
+
+    for (int i = 0; i < _results.length(); i++) {
+      _results.set(i, null);
+    }
+  }
+
+  private final AtomicReferenceArray<ProbeResult> _results =
+      new AtomicReferenceArray<>(HealthCheckProbeType.values().length);
+}
@@ -0,0 +1,22 @@
+package com.github.lgdd.liferay.health;
+
+import com.github.lgdd.liferay.health.api.HealthCheckResponse;
+import java.util.function.Supplier;
+import lombok.Value;
+
+/**
+ * A check run by a probe plan, e.g. the verification of the required bundles, named after the
+ * check it runs so it can be ordered in the configuration.
+ *
+ * @see ProbePlan
+ */
+@Value
+public class ProbeStage {
+
+  /**
+   * Name of the check, also used for its metrics and its logs.
+   */
+  String name;
+
+  Supplier<HealthCheckResponse> check;
+}
@@ -0,0 +1,243 @@
+package com.github.lgdd.liferay.health;
+
+import com.github.lgdd.liferay.health.api.HealthCheckResponse;
+import com.github.lgdd.liferay.health.api.HealthCheckStatus;
+import com.liferay.portal.configuration.metatype.bnd.util.ConfigurableUtil;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Deactivate;
+import org.osgi.service.component.annotations.Modified;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Verify the portal is not saturated: the Tomcat request threads, along with the requests waiting
+ * for one, and the connections of the database pools, along with the threads waiting for one. The
+ * saturation is sampled from JMX on a background timer and kept in atomic counters, so the
+ * readiness probe only reads them. A sample too old, e.g. because the sampler stopped, is reported
+ * as DOWN rather than trusted.
+ * <p>
+ * The check goes DOWN once the saturation reaches the high watermark, and only goes UP again once
+ * it drops to the low watermark, so readiness doesn't flap around a single threshold.
+ */
+@Component(
+    immediate = true,
+    configurationPid = HealthCheckConfiguration.PID,
+    service = SaturationHealthCheck.class
+)
+public class SaturationHealthCheck {
+
+  /**
+   * @return the saturation from the latest sample, DOWN if the portal is saturated or if the
+   * sample is too old
+   * @see HealthCheckConfiguration#verifySaturationForReadiness
+   */
+  public HealthCheckResponse verify() {
+
+    HealthCheckConfiguration config = _config;
+
+    long maxStaleness =
+        Math.max(config.maxStaleness(), 2 * config.saturationSamplingInterval());
+    long age = System.currentTimeMillis() - _lastSample;
+
+    if (age > maxStaleness) {
+      String message = "The last saturation sample is " + age
+          + " ms old, exceeding the maximum staleness of " + maxStaleness + " ms";
+      return HealthCheckResponse.builder()
+                                .status(HealthCheckStatus.DOWN)
+                                .message(message)
+                                .issues(Collections.singletonList(message))
+                                .build();
+    }
+
+    if (!_saturated) {
+      return _NOT_SATURATED_RESPONSE;
+    }
+
+    List<String> issues = new ArrayList<>();
+
+    _addIssue(
+        issues, "Request threads", _REQUEST_BUSY, _REQUEST_QUEUED, _REQUEST_MAX,
+        "requests waiting");
+    _addIssue(
+        issues, "Database connections", _DB_ACTIVE, _DB_AWAITING, _DB_MAX, "threads waiting");
+
+    return HealthCheckResponse.builder()
+                              .status(HealthCheckStatus.DOWN)
+                              .message("Portal is saturated")
+                              .issues(issues)
+                              .build();
+  }
+
+  private void _addIssue(
+      List<String> issues, String name, int used, int waiting, int max, String waitingName) {
+
+    long maxValue = _samples.get(max);
+
+    if (maxValue > 0) {
+      issues.add(name + ": " + _samples.get(used) + " used out of " + maxValue + ", "
+                     + _samples.get(waiting) + " " + waitingName);
+    }
+  }
+
+  /**
+   * Sample the saturation from JMX and update the saturated state according to the watermarks.
+   */
+  private void _sample() {
+
+    try {
+      HealthCheckConfiguration config = _config;
+      long[] sample = new long[_SAMPLE_SIZE];
+
+      for (ObjectName objectName : _mBeanServer.queryNames(_TOMCAT_EXECUTORS, null)) {
+        sample[_REQUEST_BUSY] += _getLong(objectName, "activeCount");
+        sample[_REQUEST_QUEUED] += _getLong(objectName, "queueSize");
+        sample[_REQUEST_MAX] += _getLong(objectName, "maxThreads");
+      }
+
+      if (sample[_REQUEST_MAX] == 0) {
+        // Connectors without a shared executor expose their own thread pool
+        for (ObjectName objectName : _mBeanServer.queryNames(_TOMCAT_THREAD_POOLS, null)) {
+          sample[_REQUEST_BUSY] += _getLong(objectName, "currentThreadsBusy");
+          sample[_REQUEST_MAX] += _getLong(objectName, "maxThreads");
+        }
+      }
+
+      for (ObjectName objectName : _mBeanServer.queryNames(_HIKARI_POOLS, null)) {
+        sample[_DB_ACTIVE] += _getLong(objectName, "ActiveConnections");
+        sample[_DB_AWAITING] += _getLong(objectName, "ThreadsAwaitingConnection");
+        sample[_DB_MAX] += _getLong(
+            new ObjectName(objectName.getCanonicalName().replace("type=Pool ", "type=PoolConfig ")),
+            "MaximumPoolSize");
+      }
+
+      for (int i = 0; i < _SAMPLE_SIZE; i++) {
+        _samples.set(i, sample[i]);
+      }
+
+      long saturation = Math.max(
+          _percent(sample[_REQUEST_BUSY] + sample[_REQUEST_QUEUED], sample[_REQUEST_MAX]),
+          _percent(sample[_DB_ACTIVE] + sample[_DB_AWAITING], sample[_DB_MAX]));
+
+      if (!_saturated && saturation >= config.saturationHighWatermark()) {
+        _saturated = true;
+      } else if (_saturated && saturation <= config.saturationLowWatermark()) {
+        _saturated = false;
+      }
+
+      _lastSample = System.currentTimeMillis();
+    } catch (Exception e) {
+      _log.error("Unable to sample the saturation", e);
+    }
+  }
+
+  private long _getLong(ObjectName objectName, String attribute) {
+
+    try {
+      Object value = _mBeanServer.getAttribute(objectName, attribute);
+      return value instanceof Number ? ((Number) value).longValue() : 0;
+    } catch (Exception e) {
+      _log.debug("Unable to get " + attribute + " from " + objectName, e);
+      return 0;
+    }
+  }
+
+  private static long _percent(long used, long max) {
+
+    return max > 0 ? used * 100 / max : 0;
+  }
+
+  @Activate
+  @Modified
+  public synchronized void activate(Map<String, Object> properties) {
+
+    _config =
+        ConfigurableUtil.createConfigurable(HealthCheckConfiguration.class, properties);
+
+    _stopSampler();
+    _saturated = false;
+    _lastSample = System.currentTimeMillis();
+
+    if (_config.verifySaturationForReadiness()) {
+      _sampler = Executors.newSingleThreadScheduledExecutor(
+          new HealthCheckThreadFactory("Health Check Saturation Sampler"));
+      _sampler.scheduleWithFixedDelay(
+          this::_sample, 0, Math.max(1, _config.saturationSamplingInterval()),
+          TimeUnit.MILLISECONDS);
+    }
+  }
+
+  @Deactivate
+  public synchronized void deactivate() {
+
+    _stopSampler();
+  }
+
+  private void _stopSampler() {
+
+    if (_sampler != null) {
+      _sampler.shutdownNow();
+      _sampler = null;
+    }
+  }
+
+  private static ObjectName _objectName(String name) {
+
+    try {
+      return new ObjectName(name);
+    } catch (Exception e) {
+      throw new IllegalArgumentException(e);
+    }
+  }
+
+  public static final String OK_MESSAGE = "Portal is not saturated";
+
+  private static final HealthCheckResponse _NOT_SATURATED_RESPONSE =
+      HealthCheckResponse.builder()
+                         .status(HealthCheckStatus.UP)
+                         .message(OK_MESSAGE)
+                         .build();
+
+  private static final ObjectName _TOMCAT_EXECUTORS = _objectName("Catalina:type=Executor,*");
+  private static final ObjectName _TOMCAT_THREAD_POOLS =
+      _objectName("Catalina:type=ThreadPool,*");
+  private static final ObjectName _HIKARI_POOLS = _objectName("com.zaxxer.hikari:type=Pool *");
+
+  private static final int _REQUEST_BUSY = 0;
+  private static final int _REQUEST_QUEUED = 1;
+  private static final int _REQUEST_MAX = 2;
+  private static final int _DB_ACTIVE = 3;
+  private static final int _DB_AWAITING = 4;
+  private static final int _DB_MAX = 5;
+  private static final int _SAMPLE_SIZE = 6;
+
+  private final MBeanServer _mBeanServer = ManagementFactory.getPlatformMBeanServer();
+
+  /**
+   * Latest sampled values, written by the sampler thread and read by the probes.
+   */
+  private final AtomicLongArray _samples = new AtomicLongArray(_SAMPLE_SIZE);
+
+  private volatile boolean _saturated;
+
+  /**
+   * Time of the latest successful sample, or of the start of the sampler if there is none yet.
+   */
+  private volatile long _lastSample = System.currentTimeMillis();
+
+  private volatile HealthCheckConfiguration _config;
+  private ScheduledExecutorService _sampler;
+
+  private static final Logger _log = LoggerFactory.getLogger(SaturationHealthCheck.class);
+}
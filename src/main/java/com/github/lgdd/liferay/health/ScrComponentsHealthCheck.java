@@ -0,0 +1,387 @@
+package com.github.lgdd.liferay.health;
+
+import com.github.lgdd.liferay.health.api.HealthCheckResponse;
+import com.github.lgdd.liferay.health.api.HealthCheckStatus;
+import com.liferay.portal.configuration.metatype.bnd.util.ConfigurableUtil;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.BundleEvent;
+import org.osgi.framework.BundleListener;
+import org.osgi.framework.Constants;
+import org.osgi.framework.ServiceEvent;
+import org.osgi.framework.ServiceListener;
+import org.osgi.framework.ServiceReference;
+import org.osgi.service.cm.ConfigurationEvent;
+import org.osgi.service.cm.ConfigurationListener;
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Deactivate;
+import org.osgi.service.component.annotations.Modified;
+import org.osgi.service.component.annotations.Reference;
+import org.osgi.service.component.runtime.ServiceComponentRuntime;
+import org.osgi.service.component.runtime.dto.ComponentConfigurationDTO;
+import org.osgi.service.component.runtime.dto.ComponentDescriptionDTO;
+import org.osgi.service.component.runtime.dto.ReferenceDTO;
+import org.osgi.service.component.runtime.dto.UnsatisfiedReferenceDTO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Verify the state of the Declarative Services (SCR) components, i.e. report the enabled components
+ * with unsatisfied references, missing configurations or which failed to activate.
+ * <p>
+ * Fetching the component DTOs of every bundle is expensive, so the issues are kept per bundle and
+ * only the bundles affected by a framework event are fetched again: the bundle itself for a bundle
+ * event, the bundles with components referencing one of the interfaces of a service for a service
+ * event, and the bundles with components using the PID of a configuration for a configuration
+ * event.
+ * <p>
+ * A component can also fail to activate without any of these events, e.g. a delayed component
+ * activated when first used: every bundle is fetched again once per full refresh interval, so such
+ * a failure is reported after this interval at worst. This full refresh runs in the background, and
+ * a probe called meanwhile returns the issues found so far rather than waiting for it.
+ */
+@Component(
+    immediate = true,
+    configurationPid = HealthCheckConfiguration.PID,
+    service = {ScrComponentsHealthCheck.class, ConfigurationListener.class}
+)
+public class ScrComponentsHealthCheck
+    implements BundleListener, ConfigurationListener, ServiceListener {
+
+  /**
+   * Verify if enabled SCR components are unsatisfied or failed to activate.
+   *
+   * @return a response entity to be sent in the HTTP response body as JSON
+   * @see HealthCheckResponse
+   * @see HealthCheckConfiguration
+   */
+  public HealthCheckResponse verify() {
+
+    List<String> issues = _getIssues();
+
+    if (issues.isEmpty()) {
+      return HealthCheckResponse.builder()
+                                .status(HealthCheckStatus.UP)
+                                .message(OK_MESSAGE)
+                                .build();
+    }
+
+    String message = issues.size() > 1 ? "Found " + issues.size() + " issues with SCR components"
+                                       : "Found 1 issue with SCR components";
+
+    return HealthCheckResponse.builder()
+                              .status(HealthCheckStatus.DOWN)
+                              .message(message)
+                              .issues(issues)
+                              .build();
+  }
+
+  @Override
+  public void bundleChanged(BundleEvent event) {
+
+    _dirtyBundleIds.add(event.getBundle().getBundleId());
+  }
+
+  @Override
+  public void configurationEvent(ConfigurationEvent event) {
+
+    _markDirty(_bundleIdsByPid.get(event.getPid()));
+    if (event.getFactoryPid() != null) {
+      _markDirty(_bundleIdsByPid.get(event.getFactoryPid()));
+    }
+  }
+
+  @Override
+  public void serviceChanged(ServiceEvent event) {
+
+    ServiceReference<?> serviceReference = event.getServiceReference();
+    Bundle bundle = serviceReference.getBundle();
+
+    if (bundle != null) {
+      _dirtyBundleIds.add(bundle.getBundleId());
+    }
+
+    Object objectClass = serviceReference.getProperty(Constants.OBJECTCLASS);
+
+    if (objectClass instanceof String[]) {
+      for (String interfaceName : (String[]) objectClass) {
+        _markDirty(_bundleIdsByInterface.get(interfaceName));
+      }
+    }
+  }
+
+  private void _markDirty(Set<Long> bundleIds) {
+
+    if (bundleIds != null) {
+      _dirtyBundleIds.addAll(bundleIds);
+    }
+  }
+
+  /**
+   * @return the issues of every bundle, after fetching again the components of the bundles
+   * affected by a framework event since the last call, or the issues found so far if a full refresh
+   * is running
+   */
+  private List<String> _getIssues() {
+
+    if (!_refreshLock.tryLock()) {
+      return _issues;
+    }
+
+    try {
+      return _refreshDirty();
+    } finally {
+      _refreshLock.unlock();
+    }
+  }
+
+  /**
+   * Fetch again the components of every bundle, run by the scheduler.
+   */
+  private void _refreshAll() {
+
+    _refreshLock.lock();
+
+    try {
+      _markAllDirty();
+      _refreshDirty();
+    } finally {
+      _refreshLock.unlock();
+    }
+  }
+
+  private List<String> _refreshDirty() {
+
+    if (_dirtyBundleIds.isEmpty()) {
+      return _issues;
+    }
+
+    Iterator<Long> iterator = _dirtyBundleIds.iterator();
+    while (iterator.hasNext()) {
+      long bundleId = iterator.next();
+      iterator.remove();
+      _refresh(bundleId);
+    }
+
+    List<String> issues = new ArrayList<>();
+    for (BundleComponents bundleComponents : _bundleComponents.values()) {
+      issues.addAll(bundleComponents.issues);
+    }
+    _issues = Collections.unmodifiableList(issues);
+
+    return _issues;
+  }
+
+  /**
+   * Mark every installed bundle dirty, along with the bundles whose components are known, in case
+   * they were uninstalled since.
+   */
+  private void _markAllDirty() {
+
+    for (Bundle bundle : _context.getBundles()) {
+      _dirtyBundleIds.add(bundle.getBundleId());
+    }
+
+    _dirtyBundleIds.addAll(_bundleComponents.keySet());
+  }
+
+  private void _refresh(long bundleId) {
+
+    BundleComponents previous = _bundleComponents.remove(bundleId);
+
+    if (previous != null) {
+      previous.interfaces.forEach(name -> _unindex(_bundleIdsByInterface, name, bundleId));
+      previous.pids.forEach(pid -> _unindex(_bundleIdsByPid, pid, bundleId));
+    }
+
+    Bundle bundle = _context.getBundle(bundleId);
+
+    if (bundle == null || (bundle.getState() & (Bundle.STARTING | Bundle.ACTIVE)) == 0) {
+      return;
+    }
+
+    Collection<ComponentDescriptionDTO> descriptions =
+        _serviceComponentRuntime.getComponentDescriptionDTOs(bundle);
+
+    if (descriptions.isEmpty()) {
+      return;
+    }
+
+    BundleComponents bundleComponents = new BundleComponents();
+
+    for (ComponentDescriptionDTO description : descriptions) {
+      for (ReferenceDTO reference : description.references) {
+        bundleComponents.interfaces.add(reference.interfaceName);
+      }
+      if (description.configurationPid != null) {
+        Collections.addAll(bundleComponents.pids, description.configurationPid);
+      }
+
+      if (!_serviceComponentRuntime.isComponentEnabled(description)) {
+        continue;
+      }
+
+      for (ComponentConfigurationDTO configuration :
+          _serviceComponentRuntime.getComponentConfigurationDTOs(description)) {
+        _addIssues(bundle, description, configuration, bundleComponents.issues);
+      }
+    }
+
+    bundleComponents.interfaces.forEach(name -> _index(_bundleIdsByInterface, name, bundleId));
+    bundleComponents.pids.forEach(pid -> _index(_bundleIdsByPid, pid, bundleId));
+
+    _bundleComponents.put(bundleId, bundleComponents);
+  }
+
+  private void _addIssues(
+      Bundle bundle, ComponentDescriptionDTO description,
+      ComponentConfigurationDTO configuration, List<String> issues) {
+
+    String component = "SCR component " + description.name + " in bundle: "
+        + bundle.getSymbolicName();
+
+    switch (configuration.state) {
+      case ComponentConfigurationDTO.UNSATISFIED_REFERENCE:
+        for (UnsatisfiedReferenceDTO reference : configuration.unsatisfiedReferences) {
+          issues.add(component + " has an unsatisfied reference " + reference.name
+                         + (reference.target != null ? " (target " + reference.target + ")" : ""));
+        }
+        break;
+      case ComponentConfigurationDTO.UNSATISFIED_CONFIGURATION:
+        issues.add(component + " is missing its configuration "
+                       + String.join(", ", description.configurationPid));
+        break;
+      case _FAILED_ACTIVATION:
+        issues.add(component + " failed to activate");
+        break;
+      default:
+        break;
+    }
+  }
+
+  private static void _index(Map<String, Set<Long>> index, String key, long bundleId) {
+
+    index.computeIfAbsent(key, k -> ConcurrentHashMap.newKeySet()).add(bundleId);
+  }
+
+  private static void _unindex(Map<String, Set<Long>> index, String key, long bundleId) {
+
+    Set<Long> bundleIds = index.get(key);
+    if (bundleIds != null) {
+      bundleIds.remove(bundleId);
+    }
+  }
+
+  @Activate
+  public synchronized void activate(BundleContext bundleContext, Map<String, Object> properties) {
+
+    _context = bundleContext;
+    _context.addBundleListener(this);
+    _context.addServiceListener(this);
+    _markAllDirty();
+
+    modified(properties);
+  }
+
+  @Modified
+  public synchronized void modified(Map<String, Object> properties) {
+
+    HealthCheckConfiguration config =
+        ConfigurableUtil.createConfigurable(HealthCheckConfiguration.class, properties);
+
+    _stopRefresher();
+
+    long fullRefreshInterval = config.scrComponentsFullRefreshInterval();
+
+    if (fullRefreshInterval > 0) {
+      _refresher = Executors.newSingleThreadScheduledExecutor(
+          new HealthCheckThreadFactory("Health Check SCR Components Refresh"));
+      _refresher.scheduleWithFixedDelay(
+          this::_refreshAll, fullRefreshInterval, fullRefreshInterval, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  @Deactivate
+  public synchronized void deactivate() {
+
+    _stopRefresher();
+    _context.removeServiceListener(this);
+    _context.removeBundleListener(this);
+  }
+
+  private void _stopRefresher() {
+
+    if (_refresher == null) {
+      return;
+    }
+
+    _refresher.shutdownNow();
+
+    try {
+      if (!_refresher.awaitTermination(_REFRESHER_TERMINATION_TIMEOUT, TimeUnit.MILLISECONDS)) {
+        _log.warn("The SCR components refresh did not stop within "
+                      + _REFRESHER_TERMINATION_TIMEOUT + " ms");
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+
+    _refresher = null;
+  }
+
+  /**
+   * Components found in a bundle, along with the interfaces they reference and the configuration
+   * PIDs they use.
+   */
+  private static class BundleComponents {
+
+    final List<String> issues = new ArrayList<>();
+    final Set<String> interfaces = new HashSet<>();
+    final Set<String> pids = new HashSet<>();
+  }
+
+  public static final String OK_MESSAGE = "No issues with SCR components";
+
+  /**
+   * ComponentConfigurationDTO.FAILED_ACTIVATION, added in Declarative Services 1.4.
+   */
+  private static final int _FAILED_ACTIVATION = 16;
+
+  private static final long _REFRESHER_TERMINATION_TIMEOUT = 5000;
+
+  private final Map<Long, BundleComponents> _bundleComponents = new ConcurrentSkipListMap<>();
+  private final Map<String, Set<Long>> _bundleIdsByInterface = new ConcurrentHashMap<>();
+  private final Map<String, Set<Long>> _bundleIdsByPid = new ConcurrentHashMap<>();
+  private final Set<Long> _dirtyBundleIds = ConcurrentHashMap.newKeySet();
+
+  /**
+   * Held while fetching components, so they are fetched by one thread at a time.
+   */
+  private final Lock _refreshLock = new ReentrantLock();
+
+  private volatile List<String> _issues = Collections.emptyList();
+
+  private BundleContext _context;
+  private ScheduledExecutorService _refresher;
+
+  @Reference
+  private ServiceComponentRuntime _serviceComponentRuntime;
+
+  private static final Logger _log = LoggerFactory.getLogger(ScrComponentsHealthCheck.class);
+}
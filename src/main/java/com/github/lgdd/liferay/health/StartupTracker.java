@@ -0,0 +1,213 @@
+package com.github.lgdd.liferay.health;
+
+import com.github.lgdd.liferay.health.api.HealthCheckResponse;
+import com.github.lgdd.liferay.health.api.HealthCheckStatus;
+import com.liferay.portal.kernel.util.PropsKeys;
+import com.liferay.portal.kernel.util.PropsUtil;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.BundleEvent;
+import org.osgi.framework.Constants;
+import org.osgi.framework.FrameworkEvent;
+import org.osgi.framework.FrameworkListener;
+import org.osgi.framework.SynchronousBundleListener;
+import org.osgi.framework.startlevel.BundleStartLevel;
+import org.osgi.framework.startlevel.FrameworkStartLevel;
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Deactivate;
+import org.osgi.service.component.annotations.Reference;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Track the progress of the framework startup: the active start level, the number of bundles
+ * started versus the number of bundles expected to start, and whether the framework has finished
+ * starting. The progress is updated by framework and bundle events, so the startup probe answers in
+ * constant time instead of scanning the bundles while the framework is still busy starting them.
+ * <p>
+ * Liferay fires the framework STARTED event at the beginning start level, before the modules are
+ * started at the runtime start level, so the startup is only complete once the runtime start level
+ * ({@code module.framework.runtime.start.level}) is reached and every bundle expected to start at
+ * or below this level has started.
+ */
+@Component(
+    immediate = true,
+    service = StartupTracker.class
+)
+public class StartupTracker
+    implements FrameworkListener, SynchronousBundleListener {
+
+  /**
+   * @return UP once the framework has started, DOWN with the startup progress otherwise
+   */
+  public HealthCheckResponse getResponse() {
+
+    if (_started) {
+      return _STARTED_RESPONSE;
+    }
+
+    long elapsed = System.currentTimeMillis() - _trackingStart;
+
+    String message = "Framework starting: start level " + _startLevel + " of "
+        + _targetStartLevel + ", " + _startedBundleIds.size() + " of "
+        + _expectedBundleIds.size() + " bundles started, " + (elapsed / 1000)
+        + " s since the framework started";
+
+    return HealthCheckResponse.builder()
+                              .status(HealthCheckStatus.DOWN)
+                              .message(message)
+                              .build();
+  }
+
+  /**
+   * @return true once the runtime start level is reached and every bundle expected to start has
+   * started. It stays true afterwards, even if bundles are stopped.
+   */
+  public boolean isStarted() {
+
+    return _started;
+  }
+
+  @Override
+  public void frameworkEvent(FrameworkEvent event) {
+
+    if (event.getType() == FrameworkEvent.STARTED
+        || event.getType() == FrameworkEvent.STARTLEVEL_CHANGED) {
+      _startLevel = _frameworkStartLevel.getStartLevel();
+      _updateStarted();
+    }
+  }
+
+  @Override
+  public void bundleChanged(BundleEvent event) {
+
+    _classify(event.getBundle());
+    _updateStarted();
+  }
+
+  private void _updateStarted() {
+
+    if (!_started && _startLevel >= _targetStartLevel
+        && _startedBundleIds.containsAll(_expectedBundleIds)) {
+      _started = true;
+    }
+  }
+
+  /**
+   * Classify a bundle as expected to start if it is not a fragment and has been persistently
+   * started at or below the runtime start level (or is already active), and as started if it is
+   * active.
+   *
+   * @param bundle bundle to classify
+   */
+  private void _classify(Bundle bundle) {
+
+    long bundleId = bundle.getBundleId();
+    int state = bundle.getState();
+
+    if (state == Bundle.UNINSTALLED || _bundleStateIndex.isFragment(bundle)) {
+      _expectedBundleIds.remove(bundleId);
+      _startedBundleIds.remove(bundleId);
+      return;
+    }
+
+    BundleStartLevel bundleStartLevel = bundle.adapt(BundleStartLevel.class);
+
+    if (state == Bundle.ACTIVE
+        || (bundleStartLevel != null && bundleStartLevel.isPersistentlyStarted()
+                && bundleStartLevel.getStartLevel() <= _targetStartLevel)) {
+      _expectedBundleIds.add(bundleId);
+    } else {
+      _expectedBundleIds.remove(bundleId);
+    }
+
+    if (state == Bundle.ACTIVE) {
+      _startedBundleIds.add(bundleId);
+    } else {
+      _startedBundleIds.remove(bundleId);
+    }
+  }
+
+  @Activate
+  public void activate(BundleContext bundleContext) {
+
+    _context = bundleContext;
+
+    // Activated at the beginning start level, right after the framework started
+    _trackingStart = System.currentTimeMillis();
+
+    Bundle systemBundle = _context.getBundle(Constants.SYSTEM_BUNDLE_ID);
+
+    _frameworkStartLevel = systemBundle.adapt(FrameworkStartLevel.class);
+
+    int beginningStartLevel = _parseStartLevel(
+        Constants.FRAMEWORK_BEGINNING_STARTLEVEL,
+        _context.getProperty(Constants.FRAMEWORK_BEGINNING_STARTLEVEL), 1);
+    _targetStartLevel = _parseStartLevel(
+        PropsKeys.MODULE_FRAMEWORK_RUNTIME_START_LEVEL,
+        PropsUtil.get(PropsKeys.MODULE_FRAMEWORK_RUNTIME_START_LEVEL), beginningStartLevel);
+
+    _context.addFrameworkListener(this);
+    _context.addBundleListener(this);
+
+    _startLevel = _frameworkStartLevel.getStartLevel();
+
+    for (Bundle bundle : _context.getBundles()) {
+      _classify(bundle);
+    }
+
+    // Deployed once the framework had already started
+    _updateStarted();
+  }
+
+  private static int _parseStartLevel(String name, String value, int defaultStartLevel) {
+
+    if (value == null || value.trim().isEmpty()) {
+      return defaultStartLevel;
+    }
+
+    try {
+      return Integer.parseInt(value.trim());
+    } catch (NumberFormatException e) {
+      _log.warn("Invalid start level " + value + " for " + name + ", using "
+                    + defaultStartLevel + " instead");
+      return defaultStartLevel;
+    }
+  }
+
+  @Deactivate
+  public void deactivate() {
+
+    _context.removeBundleListener(this);
+    _context.removeFrameworkListener(this);
+    _expectedBundleIds.clear();
+    _startedBundleIds.clear();
+  }
+
+  public static final String OK_MESSAGE = "Framework started";
+
+  private static final HealthCheckResponse _STARTED_RESPONSE =
+      HealthCheckResponse.builder()
+                         .status(HealthCheckStatus.UP)
+                         .message(OK_MESSAGE)
+                         .build();
+
+  private final Set<Long> _expectedBundleIds = ConcurrentHashMap.newKeySet();
+  private final Set<Long> _startedBundleIds = ConcurrentHashMap.newKeySet();
+
+  private volatile boolean _started;
+  private volatile int _startLevel;
+  private volatile int _targetStartLevel;
+  private volatile long _trackingStart;
+
+  private BundleContext _context;
+  private FrameworkStartLevel _frameworkStartLevel;
+
+  @Reference
+  private BundleStateIndex _bundleStateIndex;
+
+  private static final Logger _log = LoggerFactory.getLogger(StartupTracker.class);
+}
@@ -0,0 +1,44 @@
+package com.github.lgdd.liferay.health.api;
+
+import java.util.concurrent.CompletionStage;
+import org.osgi.annotation.versioning.ConsumerType;
+
+/**
+ * Asynchronous companion of {@link HealthCheckService}: the checks return a stage completed with
+ * the response instead of blocking the thread calling them.
+ * <p>
+ * Implementations, like the ones of {@link HealthCheckService}, can declare how long their
+ * response stays valid with the {@link #TTL} service property, and how expensive they are with
+ * the {@link #COST} service property.
+ */
+@ConsumerType
+public interface AsyncHealthCheckService {
+
+  /**
+   * Service property holding the time, in milliseconds, during which a response stays valid and is
+   * returned again without calling the check.
+   */
+  String TTL = "health.check.ttl";
+
+  /**
+   * Service property holding the cost of the check, either {@link #COST_LOW} (the default) or
+   * {@link #COST_HIGH}.
+   */
+  String COST = "health.check.cost";
+
+  /**
+   * The check is called when a probe needs its response.
+   */
+  String COST_LOW = "low";
+
+  /**
+   * The check is called in the background once its response expired, and its last response is
+   * returned meanwhile.
+   */
+  String COST_HIGH = "high";
+
+  CompletionStage<HealthCheckResponse> isReady();
+
+  CompletionStage<HealthCheckResponse> isLive();
+
+}
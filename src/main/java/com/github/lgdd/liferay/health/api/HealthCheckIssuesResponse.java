@@ -0,0 +1,57 @@
+package com.github.lgdd.liferay.health.api;
+
+import com.github.lgdd.liferay.health.internal.HealthCheckResponseJsonWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NonNull;
+
+/**
+ * Represent a response body for the issues of a probe: either the issues added and removed since a
+ * version known by the client, or a snapshot of all the issues if that version is not known
+ * anymore.
+ */
+@Data
+@Builder
+public class HealthCheckIssuesResponse {
+
+  /**
+   * Version of the current issues, incremented each time the issues of the probe change.
+   */
+  private long version;
+
+  /**
+   * Version the delta is computed from, as requested by the client.
+   */
+  private long since;
+
+  /**
+   * True if {@link #issues} holds all the current issues, false if {@link #added} and
+   * {@link #removed} hold the changes since {@link #since}.
+   */
+  private boolean snapshot;
+
+  @NonNull
+  @Builder.Default
+  private List<String> issues = new ArrayList<>();
+
+  @NonNull
+  @Builder.Default
+  private List<String> added = new ArrayList<>();
+
+  @NonNull
+  @Builder.Default
+  private List<String> removed = new ArrayList<>();
+
+  public String toJson() {
+
+    return HealthCheckResponseJsonWriter.write(this);
+  }
+
+  public byte[] toJsonBytes() {
+
+    return toJson().getBytes(StandardCharsets.UTF_8);
+  }
+}
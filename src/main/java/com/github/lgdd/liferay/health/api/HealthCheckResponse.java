@@ -1,10 +1,12 @@
 package com.github.lgdd.liferay.health.api;
 
-import com.liferay.portal.kernel.json.JSONFactoryUtil;
+import com.github.lgdd.liferay.health.internal.HealthCheckResponseJsonWriter;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NonNull;
 
 /**
@@ -25,8 +27,21 @@ public class HealthCheckResponse {
   @Builder.Default
   private List<String> issues = new ArrayList<>();
 
+  /**
+   * Generation of the dependency graph snapshot the response was computed from, 0 if it does not
+   * depend on it. It is sent in the {@code X-Health-Check-Generation} header rather than in the
+   * JSON, and two responses differing only by their generation are equal.
+   */
+  @EqualsAndHashCode.Exclude
+  private long generation;
+
   public String toJson() {
 
-    return JSONFactoryUtil.createJSONSerializer().serializeDeep(this);
+    return HealthCheckResponseJsonWriter.write(this);
+  }
+
+  public byte[] toJsonBytes() {
+
+    return toJson().getBytes(StandardCharsets.UTF_8);
   }
 }
@@ -0,0 +1,11 @@
+/**
+ * API to implement custom health checks and to read the responses of the probes.
+ * <p>
+ * 1.1.0 added {@link com.github.lgdd.liferay.health.api.AsyncHealthCheckService},
+ * {@link com.github.lgdd.liferay.health.api.HealthCheckIssuesResponse} and the generation and JSON
+ * serialization of {@link com.github.lgdd.liferay.health.api.HealthCheckResponse}.
+ */
+@Version("1.1.0")
+package com.github.lgdd.liferay.health.api;
+
+import org.osgi.annotation.versioning.Version;
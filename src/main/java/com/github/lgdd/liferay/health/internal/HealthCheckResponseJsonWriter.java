@@ -0,0 +1,111 @@
+package com.github.lgdd.liferay.health.internal;
+
+import com.github.lgdd.liferay.health.api.HealthCheckIssuesResponse;
+import com.github.lgdd.liferay.health.api.HealthCheckResponse;
+import java.util.List;
+
+/**
+ * Write a {@link HealthCheckResponse} or a {@link HealthCheckIssuesResponse} as JSON in a single
+ * pass, without reflection. Part of the implementation, outside of the exported API package.
+ */
+public class HealthCheckResponseJsonWriter {
+
+  public static String write(HealthCheckResponse response) {
+
+    List<String> issues = response.getIssues();
+    String message = response.getMessage();
+
+    StringBuilder sb = new StringBuilder(64 + message.length() + issues.size() * 96);
+
+    sb.append("{\"status\":\"");
+    sb.append(response.getStatus().name());
+    sb.append("\",\"message\":");
+    _appendString(sb, message);
+    sb.append(",\"issues\":");
+    _appendStrings(sb, issues);
+    sb.append('}');
+
+    return sb.toString();
+  }
+
+  public static String write(HealthCheckIssuesResponse response) {
+
+    List<String> issues = response.getIssues();
+    List<String> added = response.getAdded();
+    List<String> removed = response.getRemoved();
+
+    StringBuilder sb =
+        new StringBuilder(96 + (issues.size() + added.size() + removed.size()) * 96);
+
+    sb.append("{\"version\":");
+    sb.append(response.getVersion());
+    sb.append(",\"since\":");
+    sb.append(response.getSince());
+    sb.append(",\"snapshot\":");
+    sb.append(response.isSnapshot());
+    sb.append(",\"issues\":");
+    _appendStrings(sb, issues);
+    sb.append(",\"added\":");
+    _appendStrings(sb, added);
+    sb.append(",\"removed\":");
+    _appendStrings(sb, removed);
+    sb.append('}');
+
+    return sb.toString();
+  }
+
+  private static void _appendStrings(StringBuilder sb, List<String> values) {
+
+    sb.append('[');
+    for (int i = 0; i < values.size(); i++) {
+      if (i > 0) {
+        sb.append(',');
+      }
+      _appendString(sb, values.get(i));
+    }
+    sb.append(']');
+  }
+
+  private static void _appendString(StringBuilder sb, String value) {
+
+    if (value == null) {
+      sb.append("null");
+      return;
+    }
+
+    sb.append('"');
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      switch (c) {
+        case '"':
+          sb.append("\\\"");
+          break;
+        case '\\':
+          sb.append("\\\\");
+          break;
+        case '\n':
+          sb.append("\\n");
+          break;
+        case '\r':
+          sb.append("\\r");
+          break;
+        case '\t':
+          sb.append("\\t");
+          break;
+        default:
+          if (c < 0x20 || c == '\u2028' || c == '\u2029') {
+            sb.append("\\u");
+            sb.append(_HEX[(c >> 12) & 0xF]);
+            sb.append(_HEX[(c >> 8) & 0xF]);
+            sb.append(_HEX[(c >> 4) & 0xF]);
+            sb.append(_HEX[c & 0xF]);
+          } else {
+            sb.append(c);
+          }
+      }
+    }
+    sb.append('"');
+  }
+
+  private static final char[] _HEX = "0123456789abcdef".toCharArray();
+}
@@ -0,0 +1,167 @@
+package com.github.lgdd.liferay.health;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.github.lgdd.liferay.health.api.HealthCheckResponse;
+import com.github.lgdd.liferay.health.api.HealthCheckStatus;
+import java.lang.reflect.Field;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.BundleEvent;
+import org.osgi.framework.Version;
+
+public class BaselineHealthCheckTest {
+
+  @Before
+  public void setUp() throws Exception {
+
+    _baselinePath = Files.createTempDirectory("baseline").resolve("bundle-baseline.txt");
+
+    _bundles.add(_newBundle(1, "com.example.first"));
+    _bundles.add(_newBundle(2, "com.example.second"));
+
+    _inject("_bundleStateIndex", new BundleStateIndex());
+    _inject("_startupTracker", new StartupTracker() {
+
+      @Override
+      public boolean isStarted() {
+
+        return _started;
+      }
+    });
+  }
+
+  @After
+  public void tearDown() throws Exception {
+
+    _baselineHealthCheck.deactivate();
+    Files.deleteIfExists(_baselinePath);
+    Files.deleteIfExists(_baselinePath.getParent());
+  }
+
+  @Test
+  public void testBaselineIsNotLearnedBeforeTheStartupCompletes() throws Exception {
+
+    _baselineHealthCheck.activate(_context, _newProperties(true, 10));
+
+    Thread.sleep(100);
+
+    assertEquals(HealthCheckStatus.DOWN, _baselineHealthCheck.verify().getStatus());
+    assertFalse(Files.exists(_baselinePath));
+  }
+
+  @Test
+  public void testBaselineIsLearnedOnceTheBundlesStoppedChanging() throws Exception {
+
+    _started = true;
+    _baselineHealthCheck.activate(_context, _newProperties(true, 200));
+
+    // Neither activating nor a bundle deployed meanwhile learn the baseline right away
+    assertFalse(Files.exists(_baselinePath));
+
+    Bundle lateBundle = _newBundle(3, "com.example.late");
+    _bundles.add(lateBundle);
+    _baselineHealthCheck.bundleChanged(new BundleEvent(BundleEvent.STARTED, lateBundle));
+
+    assertFalse(Files.exists(_baselinePath));
+
+    HealthCheckResponse response = _awaitLearned();
+
+    assertEquals(HealthCheckStatus.UP, response.getStatus());
+    assertTrue(Files.readAllLines(_baselinePath).contains("com.example.late;1.0.0"));
+
+    _baselineHealthCheck.modified(_newProperties(false, 200));
+
+    assertEquals(BaselineHealthCheck.OK_MESSAGE, _baselineHealthCheck.verify().getMessage());
+
+    _bundles.remove(lateBundle);
+    _baselineHealthCheck.bundleChanged(new BundleEvent(BundleEvent.UNINSTALLED, lateBundle));
+
+    assertEquals(
+        Arrays.asList("Missing bundle from the baseline: com.example.late 1.0.0"),
+        _baselineHealthCheck.verify().getIssues());
+  }
+
+  private HealthCheckResponse _awaitLearned() throws InterruptedException {
+
+    long deadline = System.currentTimeMillis() + 5000;
+
+    while (System.currentTimeMillis() < deadline) {
+      HealthCheckResponse response = _baselineHealthCheck.verify();
+      if (response.getMessage().startsWith("Bundle baseline learned")) {
+        return response;
+      }
+      Thread.sleep(10);
+    }
+
+    return _baselineHealthCheck.verify();
+  }
+
+  private Map<String, Object> _newProperties(boolean learnBaseline, long quietPeriod) {
+
+    Map<String, Object> properties = new HashMap<>();
+    properties.put("learnBaseline", learnBaseline);
+    properties.put("baselineLearnQuietPeriod", quietPeriod);
+    properties.put("baselineFile", _baselinePath.toString());
+    return properties;
+  }
+
+  private void _inject(String fieldName, Object value) throws Exception {
+
+    Field field = BaselineHealthCheck.class.getDeclaredField(fieldName);
+    field.setAccessible(true);
+    field.set(_baselineHealthCheck, value);
+  }
+
+  private static Bundle _newBundle(long bundleId, String symbolicName) {
+
+    return (Bundle) Proxy.newProxyInstance(
+        Bundle.class.getClassLoader(), new Class<?>[]{Bundle.class},
+        (proxy, method, args) -> {
+          switch (method.getName()) {
+            case "getBundleId":
+              return bundleId;
+            case "getSymbolicName":
+              return symbolicName;
+            case "getState":
+              return Bundle.ACTIVE;
+            case "getVersion":
+              return new Version(1, 0, 0);
+            case "hashCode":
+              return System.identityHashCode(proxy);
+            case "equals":
+              return proxy == args[0];
+            default:
+              return null;
+          }
+        });
+  }
+
+  private BundleContext _newBundleContext() {
+
+    return (BundleContext) Proxy.newProxyInstance(
+        BundleContext.class.getClassLoader(), new Class<?>[]{BundleContext.class},
+        (proxy, method, args) ->
+            "getBundles".equals(method.getName()) ? _bundles.toArray(new Bundle[0]) : null);
+  }
+
+  private final BaselineHealthCheck _baselineHealthCheck = new BaselineHealthCheck();
+  private final List<Bundle> _bundles = new CopyOnWriteArrayList<>();
+  private final BundleContext _context = _newBundleContext();
+
+  private Path _baselinePath;
+  private volatile boolean _started;
+}
@@ -0,0 +1,188 @@
+package com.github.lgdd.liferay.health;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Hashtable;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleEvent;
+import org.osgi.framework.Constants;
+import org.osgi.framework.wiring.BundleRevision;
+
+public class BundleStateIndexTest {
+
+  @Test
+  public void testClassificationIsKeptUntilTheRevisionChanges() {
+
+    TestBundle bundle = new TestBundle(42, "com.example.fragment", Bundle.RESOLVED, true);
+
+    assertTrue(_bundleStateIndex.isFragment(bundle.proxy));
+    assertTrue(_bundleStateIndex.isFragment(bundle.proxy));
+    assertEquals(1, bundle.classifications.get());
+
+    bundle.fragment = false;
+    _bundleStateIndex.modifiedBundle(
+        bundle.proxy, new BundleEvent(BundleEvent.STARTED, bundle.proxy), bundle.proxy);
+
+    assertTrue(_bundleStateIndex.isFragment(bundle.proxy));
+
+    _bundleStateIndex.modifiedBundle(
+        bundle.proxy, new BundleEvent(BundleEvent.UPDATED, bundle.proxy), bundle.proxy);
+
+    assertFalse(_bundleStateIndex.isFragment(bundle.proxy));
+    assertEquals(2, bundle.classifications.get());
+  }
+
+  @Test
+  public void testRemovedBundleIsClassifiedAgain() {
+
+    TestBundle bundle = new TestBundle(7, "com.example.bundle", Bundle.RESOLVED, false);
+
+    _bundleStateIndex.addingBundle(bundle.proxy, null);
+    assertFalse(_bundleStateIndex.isFragment(bundle.proxy));
+
+    _bundleStateIndex.removedBundle(bundle.proxy, null, bundle.proxy);
+    bundle.fragment = true;
+
+    assertTrue(_bundleStateIndex.isFragment(bundle.proxy));
+  }
+
+  @Test
+  public void testUnclassifyingABundleKeepsTheOthersOfItsWord() {
+
+    TestBundle bundle = new TestBundle(3, "com.example.a", Bundle.RESOLVED, true);
+    TestBundle sameWordBundle = new TestBundle(5, "com.example.b", Bundle.RESOLVED, true);
+    TestBundle sameBitBundle = new TestBundle(64 + 3, "com.example.c", Bundle.RESOLVED, true);
+
+    _bundleStateIndex.isFragment(bundle.proxy);
+    _bundleStateIndex.isFragment(sameWordBundle.proxy);
+    _bundleStateIndex.isFragment(sameBitBundle.proxy);
+
+    _bundleStateIndex.removedBundle(bundle.proxy, null, bundle.proxy);
+
+    assertTrue(_bundleStateIndex.isFragment(sameWordBundle.proxy));
+    assertTrue(_bundleStateIndex.isFragment(sameBitBundle.proxy));
+    assertEquals(1, sameWordBundle.classifications.get());
+    assertEquals(1, sameBitBundle.classifications.get());
+
+    assertTrue(_bundleStateIndex.isFragment(bundle.proxy));
+    assertEquals(2, bundle.classifications.get());
+  }
+
+  @Test
+  public void testClassificationGrowsWithTheBundleIds() {
+
+    TestBundle bundle =
+        new TestBundle(64 * 64 * 3 + 5, "com.example.late", Bundle.RESOLVED, true);
+
+    assertTrue(_bundleStateIndex.isFragment(bundle.proxy));
+    assertTrue(_bundleStateIndex.isFragment(bundle.proxy));
+    assertEquals(1, bundle.classifications.get());
+  }
+
+  @Test
+  public void testRemovingAVersionKeepsTheOtherOne() {
+
+    TestBundle oldVersion = new TestBundle(10, "com.example.api", Bundle.RESOLVED, false);
+    TestBundle newVersion = new TestBundle(11, "com.example.api", Bundle.ACTIVE, false);
+
+    _bundleStateIndex.addingBundle(oldVersion.proxy, null);
+    _bundleStateIndex.addingBundle(newVersion.proxy, null);
+
+    assertSame(newVersion.proxy, _bundleStateIndex.getBundle("com.example.api"));
+
+    _bundleStateIndex.removedBundle(newVersion.proxy, null, newVersion.proxy);
+
+    assertSame(oldVersion.proxy, _bundleStateIndex.getBundle("com.example.api"));
+
+    _bundleStateIndex.removedBundle(oldVersion.proxy, null, oldVersion.proxy);
+
+    assertNull(_bundleStateIndex.getBundle("com.example.api"));
+  }
+
+  @Test
+  public void testBundlesAreIndexedByState() {
+
+    TestBundle resolved = new TestBundle(20, "com.example.resolved", Bundle.RESOLVED, false);
+    TestBundle fragment = new TestBundle(21, "com.example.fragment", Bundle.RESOLVED, true);
+    TestBundle installed = new TestBundle(22, "com.example.installed", Bundle.INSTALLED, false);
+    TestBundle active = new TestBundle(23, "com.example.active", Bundle.ACTIVE, false);
+
+    for (TestBundle bundle : new TestBundle[]{resolved, fragment, installed, active}) {
+      _bundleStateIndex.addingBundle(bundle.proxy, null);
+    }
+
+    assertEquals(
+        Collections.singletonList(resolved.proxy),
+        new ArrayList<>(_bundleStateIndex.getResolvedBundles()));
+    assertEquals(
+        Collections.singletonList(installed.proxy),
+        new ArrayList<>(_bundleStateIndex.getInstalledBundles()));
+
+    _bundleStateIndex.removedBundle(resolved.proxy, null, resolved.proxy);
+
+    assertTrue(_bundleStateIndex.getResolvedBundles().isEmpty());
+  }
+
+  /**
+   * Bundle whose type can be changed, counting how many times its revision is read.
+   */
+  private static class TestBundle {
+
+    TestBundle(long bundleId, String symbolicName, int state, boolean fragment) {
+
+      this.fragment = fragment;
+
+      proxy = (Bundle) Proxy.newProxyInstance(
+          Bundle.class.getClassLoader(), new Class<?>[]{Bundle.class},
+          (proxy, method, args) -> {
+            switch (method.getName()) {
+              case "getBundleId":
+                return bundleId;
+              case "getSymbolicName":
+                return symbolicName;
+              case "getState":
+                return state;
+              case "adapt":
+                classifications.incrementAndGet();
+                return _newRevision();
+              case "getHeaders":
+                Hashtable<String, String> headers = new Hashtable<>();
+                if (this.fragment) {
+                  headers.put(Constants.FRAGMENT_HOST, "com.example.host");
+                }
+                return headers;
+              case "hashCode":
+                return System.identityHashCode(proxy);
+              case "equals":
+                return proxy == args[0];
+              default:
+                return null;
+            }
+          });
+    }
+
+    private BundleRevision _newRevision() {
+
+      int types = fragment ? BundleRevision.TYPE_FRAGMENT : 0;
+
+      return (BundleRevision) Proxy.newProxyInstance(
+          BundleRevision.class.getClassLoader(), new Class<?>[]{BundleRevision.class},
+          (proxy, method, args) -> "getTypes".equals(method.getName()) ? types : null);
+    }
+
+    final Bundle proxy;
+    final AtomicInteger classifications = new AtomicInteger();
+    volatile boolean fragment;
+  }
+
+  private final BundleStateIndex _bundleStateIndex = new BundleStateIndex();
+}
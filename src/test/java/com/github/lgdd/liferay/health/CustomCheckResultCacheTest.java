@@ -0,0 +1,194 @@
+package com.github.lgdd.liferay.health;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.github.lgdd.liferay.health.api.AsyncHealthCheckService;
+import com.github.lgdd.liferay.health.api.HealthCheckResponse;
+import com.github.lgdd.liferay.health.api.HealthCheckStatus;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import org.junit.Test;
+import org.osgi.framework.Constants;
+import org.osgi.framework.ServiceReference;
+
+public class CustomCheckResultCacheTest {
+
+  @Test
+  public void testResponseIsKeptForItsTtl() {
+
+    ServiceReference<?> serviceReference = _newServiceReference(1, 60000, null);
+
+    HealthCheckResponse response = _get(serviceReference, _completedCheck).join();
+
+    assertSame(response, _get(serviceReference, _completedCheck).join());
+    assertEquals(1, _calls.get());
+
+    _customCheckResultCache.get(
+        HealthCheckProbeType.LIVENESS, serviceReference, _TIMEOUT, _completedCheck);
+
+    assertEquals(2, _calls.get());
+  }
+
+  @Test
+  public void testResponseWithoutTtlIsNotKept() {
+
+    ServiceReference<?> serviceReference = _newServiceReference(1, null, null);
+
+    _get(serviceReference, _completedCheck).join();
+    _get(serviceReference, _completedCheck).join();
+
+    assertEquals(2, _calls.get());
+  }
+
+  @Test
+  public void testCheckInProgressIsShared() {
+
+    ServiceReference<?> serviceReference = _newServiceReference(1, null, null);
+
+    CompletableFuture<HealthCheckResponse> refresh = _get(serviceReference, _pendingCheck);
+
+    assertSame(refresh, _get(serviceReference, _pendingCheck));
+    assertEquals(1, _calls.get());
+  }
+
+  @Test
+  public void testStuckCheckIsCancelledAndCalledAgain() {
+
+    ServiceReference<?> serviceReference = _newServiceReference(1, null, null);
+
+    CompletableFuture<HealthCheckResponse> refresh = _customCheckResultCache.get(
+        HealthCheckProbeType.READINESS, serviceReference, 0, _pendingCheck);
+    CompletableFuture<HealthCheckResponse> nextRefresh = _customCheckResultCache.get(
+        HealthCheckProbeType.READINESS, serviceReference, 0, _pendingCheck);
+
+    assertTrue(refresh.isCancelled());
+    assertNotSame(refresh, nextRefresh);
+    assertEquals(2, _calls.get());
+  }
+
+  @Test
+  public void testExpensiveCheckAnswersWithItsLastResponse() {
+
+    ServiceReference<?> serviceReference =
+        _newServiceReference(1, null, AsyncHealthCheckService.COST_HIGH);
+
+    HealthCheckResponse response = _get(serviceReference, _completedCheck).join();
+
+    CompletableFuture<HealthCheckResponse> stale = _get(serviceReference, _pendingCheck);
+
+    assertTrue(stale.isDone());
+    assertSame(response, stale.join());
+    assertEquals(2, _calls.get());
+  }
+
+  @Test
+  public void testExpensiveCheckFailingAfterAnUpAnswersWithItsFailure() {
+
+    ServiceReference<?> serviceReference =
+        _newServiceReference(1, null, AsyncHealthCheckService.COST_HIGH);
+
+    HealthCheckResponse response = _get(serviceReference, _completedCheck).join();
+
+    CompletableFuture<HealthCheckResponse> failingRefresh = new CompletableFuture<>();
+
+    assertSame(response, _get(serviceReference, () -> failingRefresh).join());
+
+    failingRefresh.completeExceptionally(new IllegalStateException("Check failed"));
+
+    CompletableFuture<HealthCheckResponse> lastResult = _get(serviceReference, _pendingCheck);
+
+    assertTrue(lastResult.isCompletedExceptionally());
+    try {
+      lastResult.join();
+      fail();
+    } catch (CompletionException e) {
+      assertTrue(e.getCause() instanceof IllegalStateException);
+    }
+  }
+
+  @Test
+  public void testExpensiveCheckIsCalledInlineOnceItsResponseIsTooOld()
+      throws InterruptedException {
+
+    ServiceReference<?> serviceReference =
+        _newServiceReference(1, null, AsyncHealthCheckService.COST_HIGH);
+    long timeout = TimeUnit.MILLISECONDS.toNanos(20);
+
+    _customCheckResultCache.get(
+        HealthCheckProbeType.READINESS, serviceReference, timeout, _completedCheck).join();
+
+    Thread.sleep(30);
+
+    CompletableFuture<HealthCheckResponse> refresh = _customCheckResultCache.get(
+        HealthCheckProbeType.READINESS, serviceReference, timeout, _pendingCheck);
+
+    assertFalse(refresh.isDone());
+    assertEquals(2, _calls.get());
+  }
+
+  @Test
+  public void testRemovedServiceIsCalledAgain() {
+
+    ServiceReference<?> serviceReference = _newServiceReference(1, 60000, null);
+    ServiceReference<?> otherServiceReference = _newServiceReference(2, 60000, null);
+
+    _get(serviceReference, _completedCheck).join();
+    _get(otherServiceReference, _completedCheck).join();
+
+    _customCheckResultCache.remove(serviceReference);
+
+    _get(serviceReference, _completedCheck).join();
+    _get(otherServiceReference, _completedCheck).join();
+
+    assertEquals(3, _calls.get());
+  }
+
+  private CompletableFuture<HealthCheckResponse> _get(
+      ServiceReference<?> serviceReference, Supplier<CompletableFuture<HealthCheckResponse>> check) {
+
+    return _customCheckResultCache.get(
+        HealthCheckProbeType.READINESS, serviceReference, _TIMEOUT, check);
+  }
+
+  private static ServiceReference<?> _newServiceReference(long serviceId, Object ttl, Object cost) {
+
+    Map<String, Object> properties = new HashMap<>();
+    properties.put(Constants.SERVICE_ID, serviceId);
+    properties.put(AsyncHealthCheckService.TTL, ttl);
+    properties.put(AsyncHealthCheckService.COST, cost);
+
+    return (ServiceReference<?>) Proxy.newProxyInstance(
+        ServiceReference.class.getClassLoader(), new Class<?>[]{ServiceReference.class},
+        (proxy, method, args) -> "getProperty".equals(method.getName())
+                                 ? properties.get(args[0]) : null);
+  }
+
+  private static final long _TIMEOUT = TimeUnit.MINUTES.toNanos(1);
+
+  private final AtomicInteger _calls = new AtomicInteger();
+
+  private final Supplier<CompletableFuture<HealthCheckResponse>> _completedCheck = () ->
+      CompletableFuture.completedFuture(
+          HealthCheckResponse.builder()
+                             .status(HealthCheckStatus.UP)
+                             .message("Call " + _calls.incrementAndGet())
+                             .build());
+
+  private final Supplier<CompletableFuture<HealthCheckResponse>> _pendingCheck = () -> {
+    _calls.incrementAndGet();
+    return new CompletableFuture<>();
+  };
+
+  private final CustomCheckResultCache _customCheckResultCache = new CustomCheckResultCache();
+}
@@ -0,0 +1,183 @@
+package com.github.lgdd.liferay.health;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.Hashtable;
+import java.util.List;
+import org.apache.felix.dm.Component;
+import org.apache.felix.dm.DependencyManager;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.FrameworkUtil;
+import org.osgi.framework.ServiceEvent;
+
+public class DependencyGraphTrackerTest {
+
+  @Before
+  public void setUp() {
+
+    _dependencyManager = new DependencyManager(_context);
+    _dependencyGraphTracker.activate(_context);
+  }
+
+  @After
+  public void tearDown() {
+
+    _dependencyGraphTracker.deactivate();
+    _dependencyManager.clear();
+  }
+
+  @Test
+  public void testCascadeIsCollapsedIntoItsRootCause() {
+
+    _addComponent("blocked", "(name=missing)");
+    _addComponent("dependent", "(name=blocked)");
+    _addComponent(null, "(name=dependent)");
+    _addComponent(null, "(name=other)");
+
+    DependencyGraphSnapshot snapshot = _dependencyGraphTracker.getSnapshot();
+    List<MissingDependencyRootCause> rootCauses = snapshot.getRootCauses();
+
+    assertEquals(4, snapshot.getUnregisteredComponents().size());
+    assertEquals(2, rootCauses.size());
+
+    MissingDependencyRootCause rootCause = rootCauses.get(0);
+
+    assertEquals("service", rootCause.getType());
+    assertEquals(1, rootCause.getRequiringComponentCount());
+    assertEquals(3, rootCause.getAffectedComponentCount());
+    assertEquals(Collections.singletonList("com.example.bundle"), rootCause.getBundleNames());
+    assertEquals(
+        "Missing service " + rootCause.getName() + " required by 1 component in bundle "
+            + "com.example.bundle, and 2 components depending on them",
+        rootCause.toIssue());
+
+    assertEquals(1, rootCauses.get(1).getAffectedComponentCount());
+    assertEquals(0, snapshot.getUnexplainedComponents().size());
+  }
+
+  @Test
+  public void testComponentsRequiringTheSameDependencyShareItsRootCause() {
+
+    _addComponent(null, "(name=missing)");
+    _addComponent(null, "(name=missing)");
+
+    List<MissingDependencyRootCause> rootCauses =
+        _dependencyGraphTracker.getSnapshot().getRootCauses();
+
+    assertEquals(1, rootCauses.size());
+    assertEquals(2, rootCauses.get(0).getRequiringComponentCount());
+    assertEquals(2, rootCauses.get(0).getAffectedComponentCount());
+  }
+
+  @Test
+  public void testCycleIsLeftUnexplained() {
+
+    _addComponent("first", "(name=second)");
+    _addComponent("second", "(name=first)");
+
+    DependencyGraphSnapshot snapshot = _dependencyGraphTracker.getSnapshot();
+
+    assertEquals(0, snapshot.getRootCauses().size());
+    assertEquals(2, snapshot.getUnexplainedComponents().size());
+  }
+
+  @Test
+  public void testSnapshotIsOnlyRebuiltAfterAChange() {
+
+    DependencyGraphSnapshot snapshot = _dependencyGraphTracker.getSnapshot();
+
+    assertSame(snapshot, _dependencyGraphTracker.getSnapshot());
+
+    _dependencyGraphTracker.serviceChanged(null);
+
+    DependencyGraphSnapshot nextSnapshot = _dependencyGraphTracker.getSnapshot();
+
+    assertNotSame(snapshot, nextSnapshot);
+    assertEquals(snapshot.getGeneration() + 1, nextSnapshot.getGeneration());
+  }
+
+  /**
+   * Add a component requiring a service which is not registered, unless another unregistered
+   * component provides it.
+   *
+   * @param name   name under which the component provides the service, null if it doesn't
+   * @param filter filter of the service the component requires
+   */
+  private void _addComponent(String name, String filter) {
+
+    Component component = _dependencyManager.createComponent().setImplementation(new Object());
+
+    if (name != null) {
+      Hashtable<String, Object> properties = new Hashtable<>();
+      properties.put("name", name);
+      component.setInterface(TestService.class.getName(), properties);
+    }
+
+    component.add(_dependencyManager.createServiceDependency()
+                                    .setService(TestService.class, filter)
+                                    .setRequired(true));
+
+    _dependencyManager.add(component);
+  }
+
+  private static Bundle _newBundle() {
+
+    return (Bundle) Proxy.newProxyInstance(
+        Bundle.class.getClassLoader(), new Class<?>[]{Bundle.class},
+        (proxy, method, args) -> {
+          switch (method.getName()) {
+            case "getSymbolicName":
+              return "com.example.bundle";
+            case "getBundleId":
+              return 1L;
+            case "hashCode":
+              return System.identityHashCode(proxy);
+            case "equals":
+              return proxy == args[0];
+            default:
+              return null;
+          }
+        });
+  }
+
+  private BundleContext _newBundleContext() {
+
+    return (BundleContext) Proxy.newProxyInstance(
+        BundleContext.class.getClassLoader(), new Class<?>[]{BundleContext.class},
+        (proxy, method, args) -> {
+          switch (method.getName()) {
+            case "getBundle":
+              return _bundle;
+            case "createFilter":
+              return FrameworkUtil.createFilter((String) args[0]);
+            case "hashCode":
+              return System.identityHashCode(proxy);
+            case "equals":
+              return proxy == args[0];
+            default:
+              return null;
+          }
+        });
+  }
+
+  /**
+   * Service provided and required by the test components.
+   */
+  public interface TestService {
+
+  }
+
+  private final Bundle _bundle = _newBundle();
+  private final BundleContext _context = _newBundleContext();
+  private final DependencyGraphTracker _dependencyGraphTracker = new DependencyGraphTracker();
+
+  private DependencyManager _dependencyManager;
+}
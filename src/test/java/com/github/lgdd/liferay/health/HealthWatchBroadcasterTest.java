@@ -0,0 +1,151 @@
+package com.github.lgdd.liferay.health;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.github.lgdd.liferay.health.api.HealthCheckResponse;
+import com.github.lgdd.liferay.health.api.HealthCheckStatus;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import javax.ws.rs.sse.OutboundSseEvent;
+import javax.ws.rs.sse.Sse;
+import javax.ws.rs.sse.SseEventSink;
+import org.junit.Test;
+
+public class HealthWatchBroadcasterTest {
+
+  @Test
+  public void testSlowSubscriberIsDisconnected() {
+
+    TestSink sink = new TestSink();
+
+    assertTrue(_healthWatchBroadcaster.subscribe(sink.proxy, _sse, 2, 10));
+
+    _healthWatchBroadcaster.publish(HealthCheckProbeType.READINESS, _newResponse("first"));
+    _healthWatchBroadcaster.publish(HealthCheckProbeType.READINESS, _newResponse("second"));
+
+    assertFalse(sink.closed);
+
+    _healthWatchBroadcaster.publish(HealthCheckProbeType.READINESS, _newResponse("third"));
+
+    assertTrue(sink.closed);
+    assertFalse(_healthWatchBroadcaster.hasSubscribers());
+    assertEquals(2, sink.sends.size());
+  }
+
+  @Test
+  public void testSubscriberKeepingUpStaysConnected() {
+
+    TestSink sink = new TestSink();
+
+    _healthWatchBroadcaster.subscribe(sink.proxy, _sse, 1, 10);
+
+    for (String issue : new String[]{"first", "second", "third"}) {
+      _healthWatchBroadcaster.publish(HealthCheckProbeType.READINESS, _newResponse(issue));
+      sink.sends.get(sink.sends.size() - 1).complete(null);
+    }
+
+    assertFalse(sink.closed);
+    assertEquals(3, sink.sends.size());
+  }
+
+  @Test
+  public void testUnchangedResultIsNotSentAgain() {
+
+    TestSink sink = new TestSink();
+
+    _healthWatchBroadcaster.subscribe(sink.proxy, _sse, 10, 10);
+    _healthWatchBroadcaster.publish(HealthCheckProbeType.LIVENESS, _newResponse("issue"));
+    _healthWatchBroadcaster.publish(HealthCheckProbeType.LIVENESS, _newResponse("issue"));
+
+    assertEquals(1, sink.sends.size());
+
+    TestSink lateSink = new TestSink();
+
+    _healthWatchBroadcaster.subscribe(lateSink.proxy, _sse, 10, 10);
+
+    assertEquals(1, lateSink.sends.size());
+  }
+
+  @Test
+  public void testSubscribersAreCapped() {
+
+    TestSink sink = new TestSink();
+    TestSink otherSink = new TestSink();
+
+    assertTrue(_healthWatchBroadcaster.subscribe(sink.proxy, _sse, 10, 1));
+    assertFalse(_healthWatchBroadcaster.subscribe(otherSink.proxy, _sse, 10, 1));
+    assertFalse(otherSink.closed);
+
+    sink.closed = true;
+
+    assertTrue(_healthWatchBroadcaster.subscribe(otherSink.proxy, _sse, 10, 1));
+  }
+
+  private static HealthCheckResponse _newResponse(String issue) {
+
+    return HealthCheckResponse.builder()
+                              .status(HealthCheckStatus.DOWN)
+                              .message("Found 1 issue")
+                              .issues(Collections.singletonList(issue))
+                              .build();
+  }
+
+  private static Sse _newSse() {
+
+    OutboundSseEvent event = (OutboundSseEvent) Proxy.newProxyInstance(
+        OutboundSseEvent.class.getClassLoader(), new Class<?>[]{OutboundSseEvent.class},
+        (proxy, method, args) -> null);
+
+    OutboundSseEvent.Builder builder = (OutboundSseEvent.Builder) Proxy.newProxyInstance(
+        OutboundSseEvent.Builder.class.getClassLoader(),
+        new Class<?>[]{OutboundSseEvent.Builder.class},
+        (proxy, method, args) -> "build".equals(method.getName()) ? event : proxy);
+
+    return (Sse) Proxy.newProxyInstance(
+        Sse.class.getClassLoader(), new Class<?>[]{Sse.class},
+        (proxy, method, args) -> "newEventBuilder".equals(method.getName()) ? builder : null);
+  }
+
+  /**
+   * Sink whose sends complete only when the test completes them.
+   */
+  private static class TestSink {
+
+    TestSink() {
+
+      proxy = (SseEventSink) Proxy.newProxyInstance(
+          SseEventSink.class.getClassLoader(), new Class<?>[]{SseEventSink.class},
+          (proxy, method, args) -> {
+            switch (method.getName()) {
+              case "isClosed":
+                return closed;
+              case "send":
+                CompletableFuture<Object> send = new CompletableFuture<>();
+                sends.add(send);
+                return send;
+              case "close":
+                closed = true;
+                return null;
+              case "hashCode":
+                return System.identityHashCode(proxy);
+              case "equals":
+                return proxy == args[0];
+              default:
+                return null;
+            }
+          });
+    }
+
+    final SseEventSink proxy;
+    final List<CompletableFuture<Object>> sends = new ArrayList<>();
+    volatile boolean closed;
+  }
+
+  private final HealthWatchBroadcaster _healthWatchBroadcaster = new HealthWatchBroadcaster();
+  private final Sse _sse = _newSse();
+}
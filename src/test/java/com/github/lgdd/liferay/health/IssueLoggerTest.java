@@ -0,0 +1,93 @@
+package com.github.lgdd.liferay.health;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import org.junit.After;
+import org.junit.Test;
+
+public class IssueLoggerTest {
+
+  @After
+  public void tearDown() {
+
+    _issueLogger.deactivate();
+  }
+
+  @Test
+  public void testIssuesAreDiffedWithThePreviousEvaluation() {
+
+    _issueLogger.activate(Collections.emptyMap());
+
+    _issueLogger.log(
+        HealthCheckProbeType.READINESS, _issuesByCheck("bundles", "first", "second", "first"));
+
+    assertEquals(
+        new LinkedHashSet<>(Arrays.asList("first", "second")),
+        _issueLogger.getIssues().get("readiness/bundles"));
+
+    _issueLogger.log(HealthCheckProbeType.READINESS, _issuesByCheck("bundles", "second"));
+
+    assertEquals(
+        Collections.singleton("second"), _issueLogger.getIssues().get("readiness/bundles"));
+
+    _issueLogger.log(HealthCheckProbeType.READINESS, _issuesByCheck("bundles"));
+
+    assertTrue(_issueLogger.getIssues().isEmpty());
+  }
+
+  @Test
+  public void testIssuesOfChecksNotRunAreForgotten() {
+
+    _issueLogger.activate(Collections.emptyMap());
+
+    Map<String, List<String>> issuesByCheck = new LinkedHashMap<>();
+    issuesByCheck.put("bundles", Collections.emptyList());
+    issuesByCheck.put("components", Collections.singletonList("Component is unsatisfied"));
+
+    _issueLogger.log(HealthCheckProbeType.READINESS, issuesByCheck);
+    _issueLogger.log(HealthCheckProbeType.LIVENESS, _issuesByCheck("jvm", "Heap is full"));
+
+    // The first check is now DOWN, so a fail-fast probe skipped the second one
+    _issueLogger.log(HealthCheckProbeType.READINESS, _issuesByCheck("bundles", "Bundle is down"));
+
+    assertEquals(
+        Arrays.asList("liveness/jvm", "readiness/bundles"),
+        Arrays.asList(_issueLogger.getIssues().keySet().toArray()));
+  }
+
+  @Test
+  public void testLinesBeyondTheRateLimitAreSuppressed() {
+
+    Map<String, Object> properties = new HashMap<>();
+    properties.put("issueLogRateLimit", 2);
+
+    _issueLogger.activate(properties);
+
+    _issueLogger.log(
+        HealthCheckProbeType.READINESS, _issuesByCheck("bundles", "first", "second", "third"));
+
+    assertEquals(1, _issueLogger.getSuppressedLines());
+    assertEquals(3, _issueLogger.getIssues().get("readiness/bundles").size());
+
+    // Unchanged issues are not logged again
+    _issueLogger.log(
+        HealthCheckProbeType.READINESS, _issuesByCheck("bundles", "third", "second", "first"));
+
+    assertEquals(1, _issueLogger.getSuppressedLines());
+  }
+
+  private static Map<String, List<String>> _issuesByCheck(String check, String... issues) {
+
+    return Collections.singletonMap(check, Arrays.asList(issues));
+  }
+
+  private final IssueLogger _issueLogger = new IssueLogger();
+}
@@ -0,0 +1,93 @@
+package com.github.lgdd.liferay.health;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.github.lgdd.liferay.health.api.HealthCheckIssuesResponse;
+import java.util.Arrays;
+import java.util.Collections;
+import org.junit.Test;
+
+public class IssueVersionHistoryTest {
+
+  @Test
+  public void testSameIssuesKeepTheirVersion() {
+
+    _issueVersionHistory.record(HealthCheckProbeType.READINESS, Arrays.asList("a", "b"));
+    long version = _getVersion();
+
+    _issueVersionHistory.record(HealthCheckProbeType.READINESS, Arrays.asList("b", "a"));
+
+    assertEquals(version, _getVersion());
+  }
+
+  @Test
+  public void testDuplicateIssuesKeepTheirVersion() {
+
+    _issueVersionHistory.record(HealthCheckProbeType.READINESS, Arrays.asList("a", "b", "a"));
+    long version = _getVersion();
+
+    _issueVersionHistory.record(HealthCheckProbeType.READINESS, Arrays.asList("a", "b", "a"));
+    _issueVersionHistory.record(HealthCheckProbeType.READINESS, Arrays.asList("b", "a"));
+
+    assertEquals(version, _getVersion());
+  }
+
+  @Test
+  public void testChangesSinceAKnownVersion() {
+
+    _issueVersionHistory.record(HealthCheckProbeType.READINESS, Arrays.asList("a", "b"));
+    long version = _getVersion();
+
+    _issueVersionHistory.record(HealthCheckProbeType.READINESS, Arrays.asList("b", "c"));
+
+    HealthCheckIssuesResponse response =
+        _issueVersionHistory.getIssues(HealthCheckProbeType.READINESS, version);
+
+    assertFalse(response.isSnapshot());
+    assertTrue(response.getVersion() > version);
+    assertEquals(Collections.singletonList("c"), response.getAdded());
+    assertEquals(Collections.singletonList("a"), response.getRemoved());
+  }
+
+  @Test
+  public void testEvictedVersionGetsASnapshot() {
+
+    _issueVersionHistory.record(HealthCheckProbeType.READINESS, Collections.singletonList("a"));
+    long version = _getVersion();
+
+    _issueVersionHistory.record(HealthCheckProbeType.READINESS, Collections.singletonList("b"));
+    _issueVersionHistory.record(HealthCheckProbeType.READINESS, Collections.singletonList("c"));
+
+    HealthCheckIssuesResponse response =
+        _issueVersionHistory.getIssues(HealthCheckProbeType.READINESS, version);
+
+    assertTrue(response.isSnapshot());
+    assertEquals(Collections.singletonList("c"), response.getIssues());
+  }
+
+  @Test
+  public void testProbeTypesHaveTheirOwnVersions() {
+
+    _issueVersionHistory.record(HealthCheckProbeType.READINESS, Collections.singletonList("a"));
+    long version = _getVersion();
+
+    _issueVersionHistory.record(HealthCheckProbeType.LIVENESS, Collections.singletonList("b"));
+    _issueVersionHistory.record(HealthCheckProbeType.LIVENESS, Collections.singletonList("c"));
+
+    HealthCheckIssuesResponse response =
+        _issueVersionHistory.getIssues(HealthCheckProbeType.READINESS, version);
+
+    assertFalse(response.isSnapshot());
+    assertTrue(response.getAdded().isEmpty());
+    assertTrue(response.getRemoved().isEmpty());
+  }
+
+  private long _getVersion() {
+
+    return _issueVersionHistory.getIssues(HealthCheckProbeType.READINESS, 0).getVersion();
+  }
+
+  private final IssueVersionHistory _issueVersionHistory = new IssueVersionHistory(2);
+}
@@ -0,0 +1,98 @@
+package com.github.lgdd.liferay.health;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import com.github.lgdd.liferay.health.api.HealthCheckResponse;
+import com.github.lgdd.liferay.health.api.HealthCheckStatus;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Test;
+
+public class ProbeCoalescerTest {
+
+  @After
+  public void tearDown() {
+
+    _executor.shutdownNow();
+  }
+
+  @Test
+  public void testConcurrentCallersShareTheEvaluationInFlight() throws Exception {
+
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+
+    Future<HealthCheckResponse> first = _executor.submit(
+        () -> _probeCoalescer.evaluate(HealthCheckProbeType.READINESS, () -> {
+          started.countDown();
+          _await(release);
+          return _newResponse();
+        }));
+
+    started.await(5, TimeUnit.SECONDS);
+
+    Future<HealthCheckResponse> second = _executor.submit(
+        () -> _probeCoalescer.evaluate(HealthCheckProbeType.READINESS, this::_newResponse));
+
+    // Give the second caller the time to join the evaluation in flight
+    Thread.sleep(50);
+    release.countDown();
+
+    assertSame(first.get(5, TimeUnit.SECONDS), second.get(5, TimeUnit.SECONDS));
+    assertEquals(1, _evaluations.get());
+  }
+
+  @Test
+  public void testSequentialCallersEvaluateAgain() {
+
+    _probeCoalescer.evaluate(HealthCheckProbeType.LIVENESS, this::_newResponse);
+    _probeCoalescer.evaluate(HealthCheckProbeType.LIVENESS, this::_newResponse);
+
+    assertEquals(2, _evaluations.get());
+  }
+
+  @Test
+  public void testFailedEvaluationIsNotKept() {
+
+    try {
+      _probeCoalescer.evaluate(HealthCheckProbeType.READINESS, () -> {
+        throw new IllegalStateException("Evaluation failed");
+      });
+      fail();
+    } catch (IllegalStateException e) {
+      assertEquals("Evaluation failed", e.getMessage());
+    }
+
+    _probeCoalescer.evaluate(HealthCheckProbeType.READINESS, this::_newResponse);
+
+    assertEquals(1, _evaluations.get());
+  }
+
+  private HealthCheckResponse _newResponse() {
+
+    return HealthCheckResponse.builder()
+                              .status(HealthCheckStatus.UP)
+                              .message("Evaluation " + _evaluations.incrementAndGet())
+                              .build();
+  }
+
+  private static void _await(CountDownLatch latch) {
+
+    try {
+      latch.await(5, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private final AtomicInteger _evaluations = new AtomicInteger();
+  private final ExecutorService _executor = Executors.newFixedThreadPool(2);
+  private final ProbeCoalescer _probeCoalescer = new ProbeCoalescer();
+}
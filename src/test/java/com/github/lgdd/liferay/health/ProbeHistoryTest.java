@@ -0,0 +1,81 @@
+package com.github.lgdd.liferay.health;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.github.lgdd.liferay.health.api.HealthCheckStatus;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.junit.Test;
+
+public class ProbeHistoryTest {
+
+  @Test
+  public void testOldestOutcomeIsOverwritten() {
+
+    _record(HealthCheckStatus.UP, 1, 0);
+    _record(HealthCheckStatus.UP, 2, 0);
+    _record(HealthCheckStatus.UP, 3, 0);
+    _record(HealthCheckStatus.UP, 4, 0);
+
+    String json = _probeHistory.toJson(HealthCheckProbeType.READINESS, 0);
+
+    assertTrue(json.contains("\"count\":3"));
+    assertFalse(json.contains("\"durationMicros\":1,"));
+    assertTrue(json.contains("\"durationMicros\":2,"));
+    assertTrue(json.contains("\"durationMicros\":4,"));
+    assertTrue(json.indexOf("\"durationMicros\":2,") < json.indexOf("\"durationMicros\":4,"));
+  }
+
+  @Test
+  public void testFlapsAndPercentile() {
+
+    _record(HealthCheckStatus.UP, 10, 0);
+    _record(HealthCheckStatus.DOWN, 30, 1);
+    _record(HealthCheckStatus.UP, 20, 0);
+
+    String json = _probeHistory.toJson(HealthCheckProbeType.READINESS, 0);
+
+    assertTrue(json.contains("\"flaps\":2"));
+    assertTrue(json.contains("\"p99DurationMicros\":30"));
+    assertTrue(
+        _probeHistory.toJson(HealthCheckProbeType.LIVENESS, 0).contains("\"count\":0"));
+  }
+
+  @Test
+  public void testFingerprintIgnoresTheOrderOfTheIssues() {
+
+    _probeHistory.record(
+        HealthCheckProbeType.LIVENESS, HealthCheckStatus.DOWN, 0, Arrays.asList("a", "b"));
+    _probeHistory.record(
+        HealthCheckProbeType.LIVENESS, HealthCheckStatus.DOWN, 0, Arrays.asList("b", "a"));
+    _probeHistory.record(
+        HealthCheckProbeType.LIVENESS, HealthCheckStatus.DOWN, 0, Arrays.asList("a", "c"));
+
+    Matcher matcher = _FINGERPRINT_PATTERN.matcher(
+        _probeHistory.toJson(HealthCheckProbeType.LIVENESS, 0));
+
+    assertTrue(matcher.find());
+    String fingerprint = matcher.group(1);
+    assertTrue(matcher.find());
+    assertEquals(fingerprint, matcher.group(1));
+    assertTrue(matcher.find());
+    assertFalse(fingerprint.equals(matcher.group(1)));
+  }
+
+  private void _record(HealthCheckStatus status, long durationMicros, int issueCount) {
+
+    _probeHistory.record(
+        HealthCheckProbeType.READINESS, status, TimeUnit.MICROSECONDS.toNanos(durationMicros),
+        Collections.nCopies(issueCount, "issue"));
+  }
+
+  private static final Pattern _FINGERPRINT_PATTERN =
+      Pattern.compile("\"issueFingerprint\":\"([0-9a-f]+)\"");
+
+  private final ProbeHistory _probeHistory = new ProbeHistory(3);
+}
@@ -0,0 +1,131 @@
+package com.github.lgdd.liferay.health;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+
+import com.github.lgdd.liferay.health.api.HealthCheckResponse;
+import com.github.lgdd.liferay.health.api.HealthCheckStatus;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ProbePlanTest {
+
+  @Before
+  public void setUp() {
+
+    _issueLogger.activate(Collections.emptyMap());
+  }
+
+  @After
+  public void tearDown() {
+
+    _executor.shutdownNow();
+    _issueLogger.deactivate();
+  }
+
+  @Test
+  public void testFailFastStopsAtTheFirstDownCheck() {
+
+    HealthCheckResponse down = _newResponse(HealthCheckStatus.DOWN, 1, "first");
+    AtomicInteger skippedCalls = new AtomicInteger();
+
+    ProbePlan probePlan = _newProbePlan(
+        false,
+        _newStage("up", _newResponse(HealthCheckStatus.UP, 1)),
+        _newStage("down", down),
+        new ProbeStage("skipped", () -> {
+          skippedCalls.incrementAndGet();
+          return _newResponse(HealthCheckStatus.DOWN, 1, "second");
+        }));
+
+    assertSame(down, probePlan.evaluate());
+    assertEquals(0, skippedCalls.get());
+    assertFalse(_probeMetrics.getLastCheckStatuses().containsKey("readiness/skipped"));
+    assertEquals("DOWN", _probeMetrics.getLastCheckStatuses().get("readiness/down"));
+  }
+
+  @Test
+  public void testFailFastReturnsTheLastResponseWhenEveryCheckIsUp() {
+
+    HealthCheckResponse last = _newResponse(HealthCheckStatus.UP, 2);
+
+    ProbePlan probePlan = _newProbePlan(
+        false, _newStage("first", _newResponse(HealthCheckStatus.UP, 1)),
+        _newStage("last", last));
+
+    assertSame(last, probePlan.evaluate());
+  }
+
+  @Test
+  public void testFullReportMergesTheIssuesOfEveryDownCheck() {
+
+    ProbePlan probePlan = _newProbePlan(
+        true,
+        _newStage("required", _newResponse(HealthCheckStatus.DOWN, 3, "bundle a", "bundle b")),
+        _newStage("up", _newResponse(HealthCheckStatus.UP, 7)),
+        _newStage("states", _newResponse(HealthCheckStatus.DOWN, 5, "bundle b", "bundle c")));
+
+    HealthCheckResponse response = probePlan.evaluate();
+
+    assertEquals(HealthCheckStatus.DOWN, response.getStatus());
+    assertEquals("2 out of 3 checks are down", response.getMessage());
+    assertEquals(Arrays.asList("bundle a", "bundle b", "bundle c"), response.getIssues());
+    assertEquals(7, response.getGeneration());
+  }
+
+  @Test
+  public void testFullReportWithASingleDownCheckReturnsItsResponse() {
+
+    HealthCheckResponse down = _newResponse(HealthCheckStatus.DOWN, 1, "issue");
+
+    ProbePlan probePlan = _newProbePlan(
+        true, _newStage("up", _newResponse(HealthCheckStatus.UP, 1)), _newStage("down", down),
+        _newStage("other", _newResponse(HealthCheckStatus.UP, 1)));
+
+    assertSame(down, probePlan.evaluate());
+  }
+
+  @Test
+  public void testPlanWithoutChecksIsUp() {
+
+    assertEquals(HealthCheckStatus.UP, _newProbePlan(true).evaluate().getStatus());
+    assertEquals(HealthCheckStatus.UP, _newProbePlan(false).evaluate().getStatus());
+  }
+
+  private ProbePlan _newProbePlan(boolean fullReport, ProbeStage... stages) {
+
+    List<ProbeStage> stageList = Arrays.asList(stages);
+
+    return new ProbePlan(
+        HealthCheckProbeType.READINESS, stageList, fullReport, _executor, _probeMetrics,
+        _issueLogger);
+  }
+
+  private static ProbeStage _newStage(String name, HealthCheckResponse response) {
+
+    return new ProbeStage(name, () -> response);
+  }
+
+  private static HealthCheckResponse _newResponse(
+      HealthCheckStatus status, long generation, String... issues) {
+
+    return HealthCheckResponse.builder()
+                              .status(status)
+                              .message(status.name())
+                              .issues(Arrays.asList(issues))
+                              .generation(generation)
+                              .build();
+  }
+
+  private final ExecutorService _executor = Executors.newFixedThreadPool(2);
+  private final IssueLogger _issueLogger = new IssueLogger();
+  private final ProbeMetrics _probeMetrics = new ProbeMetrics();
+}
@@ -0,0 +1,58 @@
+package com.github.lgdd.liferay.health;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class ProbeRateLimiterTest {
+
+  @Test
+  public void testClientLimit() {
+
+    for (int i = 0; i < 5; i++) {
+      assertTrue(_probeRateLimiter.tryAcquire("10.0.0.1", 0, 5));
+    }
+
+    assertFalse(_probeRateLimiter.tryAcquire("10.0.0.1", 0, 5));
+    assertTrue(_probeRateLimiter.tryAcquire("10.0.0.2", 0, 5));
+    assertTrue(_probeRateLimiter.tryAcquire(null, 0, 5));
+  }
+
+  @Test
+  public void testGlobalLimitDoesNotUseUpTheClientBudget() {
+
+    assertTrue(_probeRateLimiter.tryAcquire("10.0.0.1", 1, 2));
+    assertFalse(_probeRateLimiter.tryAcquire("10.0.0.1", 1, 2));
+
+    // The token of the request rejected by the global limit was given back to the client
+    assertTrue(_probeRateLimiter.tryAcquire("10.0.0.1", 0, 2));
+    assertFalse(_probeRateLimiter.tryAcquire("10.0.0.1", 0, 2));
+  }
+
+  @Test
+  public void testLeastRecentlySeenClientIsEvicted() {
+
+    for (int i = 0; i < _MAX_CLIENTS; i++) {
+      assertTrue(_probeRateLimiter.tryAcquire("client-" + i, 0, 1));
+    }
+
+    assertEquals(_MAX_CLIENTS, _probeRateLimiter.getClientCount());
+
+    // Seen again, so client-1 becomes the least recently seen one
+    assertFalse(_probeRateLimiter.tryAcquire("client-0", 0, 1));
+
+    assertTrue(_probeRateLimiter.tryAcquire("new-client", 0, 1));
+    assertEquals(_MAX_CLIENTS, _probeRateLimiter.getClientCount());
+
+    // The other clients keep their bucket, only client-1 starts over
+    assertFalse(_probeRateLimiter.tryAcquire("client-0", 0, 1));
+    assertFalse(_probeRateLimiter.tryAcquire("client-2", 0, 1));
+    assertTrue(_probeRateLimiter.tryAcquire("client-1", 0, 1));
+  }
+
+  private static final int _MAX_CLIENTS = 1024;
+
+  private final ProbeRateLimiter _probeRateLimiter = new ProbeRateLimiter();
+}
@@ -0,0 +1,65 @@
+package com.github.lgdd.liferay.health;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import com.github.lgdd.liferay.health.api.HealthCheckResponse;
+import com.github.lgdd.liferay.health.api.HealthCheckStatus;
+import org.junit.Test;
+
+public class ProbeResultCacheTest {
+
+  @Test
+  public void testProbeNotEvaluatedYetIsDown() {
+
+    assertNull(_probeResultCache.get(HealthCheckProbeType.READINESS));
+    assertEquals(
+        HealthCheckStatus.DOWN,
+        _probeResultCache.getResponse(HealthCheckProbeType.READINESS, 1000).getStatus());
+  }
+
+  @Test
+  public void testRecentResultIsServed() {
+
+    HealthCheckResponse response = _newUpResponse();
+
+    _probeResultCache.put(HealthCheckProbeType.READINESS, response);
+
+    assertSame(response, _probeResultCache.getResponse(HealthCheckProbeType.READINESS, 60000));
+    assertNull(_probeResultCache.get(HealthCheckProbeType.LIVENESS));
+  }
+
+  @Test
+  public void testStaleResultIsDown() throws InterruptedException {
+
+    _probeResultCache.put(HealthCheckProbeType.LIVENESS, _newUpResponse());
+
+    Thread.sleep(20);
+
+    HealthCheckResponse response =
+        _probeResultCache.getResponse(HealthCheckProbeType.LIVENESS, 10);
+
+    assertEquals(HealthCheckStatus.DOWN, response.getStatus());
+    assertEquals(1, response.getIssues().size());
+  }
+
+  @Test
+  public void testClearForgetsTheResults() {
+
+    _probeResultCache.put(HealthCheckProbeType.READINESS, _newUpResponse());
+    _probeResultCache.clear();
+
+    assertNull(_probeResultCache.get(HealthCheckProbeType.READINESS));
+  }
+
+  private static HealthCheckResponse _newUpResponse() {
+
+    return HealthCheckResponse.builder()
+                              .status(HealthCheckStatus.UP)
+                              .message("No issues")
+                              .build();
+  }
+
+  private final ProbeResultCache _probeResultCache = new ProbeResultCache();
+}
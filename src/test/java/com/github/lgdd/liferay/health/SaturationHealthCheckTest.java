@@ -0,0 +1,57 @@
+package com.github.lgdd.liferay.health;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.github.lgdd.liferay.health.api.HealthCheckResponse;
+import com.github.lgdd.liferay.health.api.HealthCheckStatus;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.After;
+import org.junit.Test;
+
+public class SaturationHealthCheckTest {
+
+  @After
+  public void tearDown() {
+
+    _saturationHealthCheck.deactivate();
+  }
+
+  @Test
+  public void testRecentSampleIsTrusted() {
+
+    _activate(60000, 60000);
+
+    assertEquals(SaturationHealthCheck.OK_MESSAGE, _saturationHealthCheck.verify().getMessage());
+  }
+
+  @Test
+  public void testStaleSampleIsDown() throws InterruptedException {
+
+    _activate(5, 1);
+
+    // The sampler is gone, e.g. killed, so the last sample gets older and older
+    _saturationHealthCheck.deactivate();
+    Thread.sleep(50);
+
+    HealthCheckResponse response = _saturationHealthCheck.verify();
+
+    assertEquals(HealthCheckStatus.DOWN, response.getStatus());
+    assertTrue(
+        response.getMessage(),
+        response.getMessage().startsWith("The last saturation sample is "));
+  }
+
+  private void _activate(long samplingInterval, long maxStaleness) {
+
+    Map<String, Object> properties = new HashMap<>();
+    properties.put("verifySaturationForReadiness", true);
+    properties.put("saturationSamplingInterval", samplingInterval);
+    properties.put("maxStaleness", maxStaleness);
+
+    _saturationHealthCheck.activate(properties);
+  }
+
+  private final SaturationHealthCheck _saturationHealthCheck = new SaturationHealthCheck();
+}
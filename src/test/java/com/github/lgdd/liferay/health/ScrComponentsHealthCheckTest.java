@@ -0,0 +1,271 @@
+package com.github.lgdd.liferay.health;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.github.lgdd.liferay.health.api.HealthCheckResponse;
+import com.github.lgdd.liferay.health.api.HealthCheckStatus;
+import java.lang.reflect.Field;
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Test;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.BundleEvent;
+import org.osgi.framework.Constants;
+import org.osgi.framework.ServiceEvent;
+import org.osgi.framework.ServiceReference;
+import org.osgi.service.cm.ConfigurationEvent;
+import org.osgi.service.component.runtime.ServiceComponentRuntime;
+import org.osgi.service.component.runtime.dto.ComponentConfigurationDTO;
+import org.osgi.service.component.runtime.dto.ComponentDescriptionDTO;
+import org.osgi.service.component.runtime.dto.ReferenceDTO;
+import org.osgi.service.component.runtime.dto.UnsatisfiedReferenceDTO;
+
+public class ScrComponentsHealthCheckTest {
+
+  @After
+  public void tearDown() {
+
+    _scrComponentsHealthCheck.deactivate();
+  }
+
+  @Test
+  public void testOnlyDirtyBundlesAreFetchedAgain() throws Exception {
+
+    _activate(0);
+
+    HealthCheckResponse response = _scrComponentsHealthCheck.verify();
+
+    assertEquals(HealthCheckStatus.DOWN, response.getStatus());
+    assertEquals(
+        Collections.singletonList(
+            "SCR component com.example.Consumer in bundle: com.example.consumer has an unsatisfied"
+                + " reference greeter"),
+        response.getIssues());
+    assertEquals(1, _fetches(_CONSUMER_ID));
+    assertEquals(1, _fetches(_PROVIDER_ID));
+
+    _scrComponentsHealthCheck.verify();
+
+    assertEquals(1, _fetches(_CONSUMER_ID));
+
+    _satisfied = true;
+    _scrComponentsHealthCheck.bundleChanged(new BundleEvent(BundleEvent.STARTED, _consumer));
+
+    assertEquals(HealthCheckStatus.UP, _scrComponentsHealthCheck.verify().getStatus());
+    assertEquals(2, _fetches(_CONSUMER_ID));
+    assertEquals(1, _fetches(_PROVIDER_ID));
+  }
+
+  @Test
+  public void testServiceEventMarksTheReferencingBundlesDirty() throws Exception {
+
+    _activate(0);
+    _scrComponentsHealthCheck.verify();
+
+    _satisfied = true;
+    _scrComponentsHealthCheck.serviceChanged(
+        new ServiceEvent(ServiceEvent.REGISTERED, _newServiceReference("com.example.Greeter")));
+
+    assertEquals(HealthCheckStatus.UP, _scrComponentsHealthCheck.verify().getStatus());
+    assertEquals(2, _fetches(_CONSUMER_ID));
+    assertEquals(2, _fetches(_PROVIDER_ID));
+
+    _scrComponentsHealthCheck.serviceChanged(
+        new ServiceEvent(ServiceEvent.REGISTERED, _newServiceReference("com.example.Other")));
+    _scrComponentsHealthCheck.verify();
+
+    assertEquals(2, _fetches(_CONSUMER_ID));
+  }
+
+  @Test
+  public void testConfigurationEventMarksTheBundlesUsingItsPidDirty() throws Exception {
+
+    _activate(0);
+    _scrComponentsHealthCheck.verify();
+
+    _satisfied = true;
+    _scrComponentsHealthCheck.configurationEvent(
+        new ConfigurationEvent(
+            _newServiceReference("org.osgi.service.cm.ConfigurationAdmin"),
+            ConfigurationEvent.CM_UPDATED, null, "com.example.consumer.pid"));
+
+    assertEquals(HealthCheckStatus.UP, _scrComponentsHealthCheck.verify().getStatus());
+    assertEquals(2, _fetches(_CONSUMER_ID));
+    assertEquals(1, _fetches(_PROVIDER_ID));
+  }
+
+  @Test
+  public void testFullRefreshRunsInTheBackground() throws Exception {
+
+    _activate(20);
+    _scrComponentsHealthCheck.verify();
+
+    // A change without any event, e.g. a delayed component failing to activate
+    _satisfied = true;
+
+    HealthCheckStatus status = HealthCheckStatus.DOWN;
+    long deadline = System.currentTimeMillis() + 5000;
+    while (status == HealthCheckStatus.DOWN && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+      status = _scrComponentsHealthCheck.verify().getStatus();
+    }
+
+    assertEquals(HealthCheckStatus.UP, status);
+    assertTrue(_fetches(_CONSUMER_ID) >= 2);
+    for (String threadName : _fetchThreadNames.subList(2, _fetchThreadNames.size())) {
+      assertTrue(threadName, threadName.startsWith("Health Check SCR Components Refresh"));
+    }
+  }
+
+  private void _activate(long fullRefreshInterval) throws Exception {
+
+    Field field =
+        ScrComponentsHealthCheck.class.getDeclaredField("_serviceComponentRuntime");
+    field.setAccessible(true);
+    field.set(_scrComponentsHealthCheck, _newServiceComponentRuntime());
+
+    Map<String, Object> properties = new HashMap<>();
+    properties.put("scrComponentsFullRefreshInterval", fullRefreshInterval);
+
+    _scrComponentsHealthCheck.activate(_newBundleContext(), properties);
+  }
+
+  private int _fetches(long bundleId) {
+
+    return _fetchesByBundleId.computeIfAbsent(bundleId, id -> new AtomicInteger()).get();
+  }
+
+  private ServiceComponentRuntime _newServiceComponentRuntime() {
+
+    return (ServiceComponentRuntime) Proxy.newProxyInstance(
+        ServiceComponentRuntime.class.getClassLoader(),
+        new Class<?>[]{ServiceComponentRuntime.class},
+        (proxy, method, args) -> {
+          switch (method.getName()) {
+            case "getComponentDescriptionDTOs":
+              Bundle bundle = ((Bundle[]) args[0])[0];
+              _fetchesByBundleId.computeIfAbsent(bundle.getBundleId(), id -> new AtomicInteger())
+                                .incrementAndGet();
+              _fetchThreadNames.add(Thread.currentThread().getName());
+              return bundle == _consumer ? Collections.singletonList(_newConsumerDescription())
+                                         : Collections.emptyList();
+            case "isComponentEnabled":
+              return true;
+            case "getComponentConfigurationDTOs":
+              return Collections.singletonList(_newConsumerConfiguration());
+            default:
+              return null;
+          }
+        });
+  }
+
+  private static ComponentDescriptionDTO _newConsumerDescription() {
+
+    ReferenceDTO reference = new ReferenceDTO();
+    reference.name = "greeter";
+    reference.interfaceName = "com.example.Greeter";
+
+    ComponentDescriptionDTO description = new ComponentDescriptionDTO();
+    description.name = "com.example.Consumer";
+    description.configurationPid = new String[]{"com.example.consumer.pid"};
+    description.references = new ReferenceDTO[]{reference};
+
+    return description;
+  }
+
+  private ComponentConfigurationDTO _newConsumerConfiguration() {
+
+    ComponentConfigurationDTO configuration = new ComponentConfigurationDTO();
+
+    if (_satisfied) {
+      configuration.state = ComponentConfigurationDTO.ACTIVE;
+      configuration.unsatisfiedReferences = new UnsatisfiedReferenceDTO[0];
+    } else {
+      UnsatisfiedReferenceDTO reference = new UnsatisfiedReferenceDTO();
+      reference.name = "greeter";
+
+      configuration.state = ComponentConfigurationDTO.UNSATISFIED_REFERENCE;
+      configuration.unsatisfiedReferences = new UnsatisfiedReferenceDTO[]{reference};
+    }
+
+    return configuration;
+  }
+
+  private BundleContext _newBundleContext() {
+
+    return (BundleContext) Proxy.newProxyInstance(
+        BundleContext.class.getClassLoader(), new Class<?>[]{BundleContext.class},
+        (proxy, method, args) -> {
+          switch (method.getName()) {
+            case "getBundles":
+              return new Bundle[]{_consumer, _provider};
+            case "getBundle":
+              long bundleId = (Long) args[0];
+              return bundleId == _CONSUMER_ID ? _consumer
+                                              : bundleId == _PROVIDER_ID ? _provider : null;
+            default:
+              return null;
+          }
+        });
+  }
+
+  @SuppressWarnings("unchecked")
+  private <S> ServiceReference<S> _newServiceReference(String interfaceName) {
+
+    return (ServiceReference<S>) Proxy.newProxyInstance(
+        ServiceReference.class.getClassLoader(), new Class<?>[]{ServiceReference.class},
+        (proxy, method, args) -> {
+          switch (method.getName()) {
+            case "getBundle":
+              return _provider;
+            case "getProperty":
+              return Constants.OBJECTCLASS.equals(args[0]) ? new String[]{interfaceName} : null;
+            default:
+              return null;
+          }
+        });
+  }
+
+  private static Bundle _newBundle(long bundleId, String symbolicName) {
+
+    return (Bundle) Proxy.newProxyInstance(
+        Bundle.class.getClassLoader(), new Class<?>[]{Bundle.class},
+        (proxy, method, args) -> {
+          switch (method.getName()) {
+            case "getBundleId":
+              return bundleId;
+            case "getSymbolicName":
+              return symbolicName;
+            case "getState":
+              return Bundle.ACTIVE;
+            case "hashCode":
+              return System.identityHashCode(proxy);
+            case "equals":
+              return proxy == args[0];
+            default:
+              return null;
+          }
+        });
+  }
+
+  private static final long _CONSUMER_ID = 1;
+  private static final long _PROVIDER_ID = 2;
+
+  private final Bundle _consumer = _newBundle(_CONSUMER_ID, "com.example.consumer");
+  private final Bundle _provider = _newBundle(_PROVIDER_ID, "com.example.provider");
+  private final Map<Long, AtomicInteger> _fetchesByBundleId = new ConcurrentHashMap<>();
+  private final List<String> _fetchThreadNames = new CopyOnWriteArrayList<>();
+  private final ScrComponentsHealthCheck _scrComponentsHealthCheck =
+      new ScrComponentsHealthCheck();
+
+  private volatile boolean _satisfied;
+}
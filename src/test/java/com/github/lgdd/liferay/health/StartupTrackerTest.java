@@ -0,0 +1,218 @@
+package com.github.lgdd.liferay.health;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.github.lgdd.liferay.health.api.HealthCheckResponse;
+import com.github.lgdd.liferay.health.api.HealthCheckStatus;
+import com.liferay.portal.kernel.util.Props;
+import com.liferay.portal.kernel.util.PropsKeys;
+import com.liferay.portal.kernel.util.PropsUtil;
+import java.lang.reflect.Field;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.After;
+import org.junit.Test;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.BundleEvent;
+import org.osgi.framework.Constants;
+import org.osgi.framework.FrameworkEvent;
+import org.osgi.framework.startlevel.BundleStartLevel;
+import org.osgi.framework.startlevel.FrameworkStartLevel;
+
+public class StartupTrackerTest {
+
+  @After
+  public void tearDown() {
+
+    _startupTracker.deactivate();
+    PropsUtil.setProps(null);
+  }
+
+  @Test
+  public void testStartedEventAtTheBeginningStartLevelIsNotEnough() throws Exception {
+
+    _newBundle(1, 6, Bundle.ACTIVE);
+    _newBundle(2, 20, Bundle.RESOLVED);
+
+    _activate("6", "20");
+    _startupTracker.frameworkEvent(new FrameworkEvent(FrameworkEvent.STARTED, _systemBundle, null));
+
+    HealthCheckResponse response = _startupTracker.getResponse();
+
+    assertEquals(HealthCheckStatus.DOWN, response.getStatus());
+    assertTrue(
+        response.getMessage(),
+        response.getMessage().startsWith(
+            "Framework starting: start level 6 of 20, 1 of 2 bundles started"));
+  }
+
+  @Test
+  public void testStartedOnceEveryExpectedBundleStartedAtTheRuntimeStartLevel() throws Exception {
+
+    _newBundle(1, 6, Bundle.ACTIVE);
+    TestBundle lateBundle = _newBundle(2, 20, Bundle.RESOLVED);
+
+    _activate("6", "20");
+
+    _startLevel = 20;
+    _startupTracker.frameworkEvent(
+        new FrameworkEvent(FrameworkEvent.STARTLEVEL_CHANGED, _systemBundle, null));
+
+    assertEquals(HealthCheckStatus.DOWN, _startupTracker.getResponse().getStatus());
+
+    lateBundle.state = Bundle.ACTIVE;
+    _startupTracker.bundleChanged(new BundleEvent(BundleEvent.STARTED, lateBundle.proxy));
+
+    assertEquals(HealthCheckStatus.UP, _startupTracker.getResponse().getStatus());
+
+    lateBundle.state = Bundle.RESOLVED;
+    _startupTracker.bundleChanged(new BundleEvent(BundleEvent.STOPPED, lateBundle.proxy));
+
+    assertTrue(_startupTracker.isStarted());
+  }
+
+  @Test
+  public void testBundlesAboveTheRuntimeStartLevelAreNotExpected() throws Exception {
+
+    _newBundle(1, 20, Bundle.ACTIVE);
+    _newBundle(2, 30, Bundle.RESOLVED);
+
+    _startLevel = 20;
+    _activate("6", "20");
+
+    assertTrue(_startupTracker.isStarted());
+  }
+
+  @Test
+  public void testMalformedStartLevelsAreIgnored() throws Exception {
+
+    _newBundle(1, 1, Bundle.ACTIVE);
+    _newBundle(2, 20, Bundle.RESOLVED);
+
+    _startLevel = 1;
+    _activate("six", "twenty");
+
+    HealthCheckResponse response = _startupTracker.getResponse();
+
+    assertEquals(HealthCheckStatus.UP, response.getStatus());
+  }
+
+  private void _activate(String beginningStartLevel, String runtimeStartLevel)
+      throws Exception {
+
+    PropsUtil.setProps((Props) Proxy.newProxyInstance(
+        Props.class.getClassLoader(), new Class<?>[]{Props.class},
+        (proxy, method, args) ->
+            "get".equals(method.getName())
+                && PropsKeys.MODULE_FRAMEWORK_RUNTIME_START_LEVEL.equals(args[0])
+            ? runtimeStartLevel : null));
+
+    Field field = StartupTracker.class.getDeclaredField("_bundleStateIndex");
+    field.setAccessible(true);
+    field.set(_startupTracker, new BundleStateIndex());
+
+    _startupTracker.activate((BundleContext) Proxy.newProxyInstance(
+        BundleContext.class.getClassLoader(), new Class<?>[]{BundleContext.class},
+        (proxy, method, args) -> {
+          switch (method.getName()) {
+            case "getBundle":
+              return _systemBundle;
+            case "getBundles":
+              List<Bundle> bundles = new ArrayList<>();
+              for (TestBundle bundle : _bundles) {
+                bundles.add(bundle.proxy);
+              }
+              return bundles.toArray(new Bundle[0]);
+            case "getProperty":
+              return Constants.FRAMEWORK_BEGINNING_STARTLEVEL.equals(args[0])
+                     ? beginningStartLevel : null;
+            default:
+              return null;
+          }
+        }));
+  }
+
+  private TestBundle _newBundle(long bundleId, int startLevel, int state) {
+
+    TestBundle bundle = new TestBundle(bundleId, startLevel, state);
+    _bundles.add(bundle);
+    return bundle;
+  }
+
+  private Bundle _newSystemBundle() {
+
+    FrameworkStartLevel frameworkStartLevel = (FrameworkStartLevel) Proxy.newProxyInstance(
+        FrameworkStartLevel.class.getClassLoader(), new Class<?>[]{FrameworkStartLevel.class},
+        (proxy, method, args) -> "getStartLevel".equals(method.getName()) ? _startLevel : null);
+
+    return (Bundle) Proxy.newProxyInstance(
+        Bundle.class.getClassLoader(), new Class<?>[]{Bundle.class},
+        (proxy, method, args) -> {
+          switch (method.getName()) {
+            case "getBundleId":
+              return Constants.SYSTEM_BUNDLE_ID;
+            case "getState":
+              return Bundle.ACTIVE;
+            case "adapt":
+              return FrameworkStartLevel.class.equals(args[0]) ? frameworkStartLevel : null;
+            default:
+              return null;
+          }
+        });
+  }
+
+  /**
+   * Persistently started bundle whose state can be changed.
+   */
+  private static class TestBundle {
+
+    TestBundle(long bundleId, int startLevel, int state) {
+
+      this.state = state;
+
+      BundleStartLevel bundleStartLevel = (BundleStartLevel) Proxy.newProxyInstance(
+          BundleStartLevel.class.getClassLoader(), new Class<?>[]{BundleStartLevel.class},
+          (proxy, method, args) -> {
+            switch (method.getName()) {
+              case "getStartLevel":
+                return startLevel;
+              case "isPersistentlyStarted":
+                return true;
+              default:
+                return null;
+            }
+          });
+
+      proxy = (Bundle) Proxy.newProxyInstance(
+          Bundle.class.getClassLoader(), new Class<?>[]{Bundle.class},
+          (proxy, method, args) -> {
+            switch (method.getName()) {
+              case "getBundleId":
+                return bundleId;
+              case "getState":
+                return this.state;
+              case "adapt":
+                return BundleStartLevel.class.equals(args[0]) ? bundleStartLevel : null;
+              case "hashCode":
+                return System.identityHashCode(proxy);
+              case "equals":
+                return proxy == args[0];
+              default:
+                return null;
+            }
+          });
+    }
+
+    final Bundle proxy;
+    volatile int state;
+  }
+
+  private final List<TestBundle> _bundles = new ArrayList<>();
+  private final Bundle _systemBundle = _newSystemBundle();
+  private final StartupTracker _startupTracker = new StartupTracker();
+
+  private volatile int _startLevel = 6;
+}
@@ -0,0 +1,41 @@
+package com.github.lgdd.liferay.health.api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+
+import java.util.Collections;
+import org.junit.Test;
+
+public class HealthCheckResponseTest {
+
+  @Test
+  public void testGenerationIsNotPartOfTheContent() {
+
+    HealthCheckResponse response = _newResponse(1);
+    HealthCheckResponse nextResponse = _newResponse(2);
+
+    assertEquals(response, nextResponse);
+    assertEquals(response.hashCode(), nextResponse.hashCode());
+    assertEquals(response.toJson(), nextResponse.toJson());
+    assertFalse(response.toJson().contains("generation"));
+  }
+
+  @Test
+  public void testIssuesArePartOfTheContent() {
+
+    HealthCheckResponse response = _newResponse(1);
+    response.setIssues(Collections.singletonList("Bundle com.example is RESOLVED"));
+
+    assertNotEquals(_newResponse(1), response);
+  }
+
+  private static HealthCheckResponse _newResponse(long generation) {
+
+    return HealthCheckResponse.builder()
+                              .status(HealthCheckStatus.DOWN)
+                              .message("Found 1 issue")
+                              .generation(generation)
+                              .build();
+  }
+}
@@ -0,0 +1,61 @@
+package com.github.lgdd.liferay.health.internal;
+
+import static org.junit.Assert.assertEquals;
+
+import com.github.lgdd.liferay.health.api.HealthCheckIssuesResponse;
+import com.github.lgdd.liferay.health.api.HealthCheckResponse;
+import com.github.lgdd.liferay.health.api.HealthCheckStatus;
+import java.util.Arrays;
+import java.util.Collections;
+import org.junit.Test;
+
+public class HealthCheckResponseJsonWriterTest {
+
+  @Test
+  public void testResponse() {
+
+    HealthCheckResponse response =
+        HealthCheckResponse.builder()
+                           .status(HealthCheckStatus.DOWN)
+                           .message("Found 2 issues")
+                           .issues(Arrays.asList("first", "second"))
+                           .build();
+
+    assertEquals(
+        "{\"status\":\"DOWN\",\"message\":\"Found 2 issues\",\"issues\":[\"first\",\"second\"]}",
+        HealthCheckResponseJsonWriter.write(response));
+  }
+
+  @Test
+  public void testSpecialCharactersAreEscaped() {
+
+    HealthCheckResponse response =
+        HealthCheckResponse.builder()
+                           .status(HealthCheckStatus.UP)
+                           .message("\"quoted\" C:\\path\ttab\r\nline")
+                           .issues(Collections.singletonList("bell\u0007 separator\u2028 é"))
+                           .build();
+
+    assertEquals(
+        "{\"status\":\"UP\",\"message\":\"\\\"quoted\\\" C:\\\\path\\ttab\\r\\nline\","
+            + "\"issues\":[\"bell\\u0007 separator\\u2028 é\"]}",
+        HealthCheckResponseJsonWriter.write(response));
+  }
+
+  @Test
+  public void testIssuesResponse() {
+
+    HealthCheckIssuesResponse response =
+        HealthCheckIssuesResponse.builder()
+                                 .version(12)
+                                 .since(10)
+                                 .added(Collections.singletonList("added"))
+                                 .removed(Collections.singletonList("removed"))
+                                 .build();
+
+    assertEquals(
+        "{\"version\":12,\"since\":10,\"snapshot\":false,\"issues\":[],"
+            + "\"added\":[\"added\"],\"removed\":[\"removed\"]}",
+        HealthCheckResponseJsonWriter.write(response));
+  }
+}